@@ -52,6 +52,18 @@ public class FunctionsTestActivity extends Activity {
         setContentView(mCardScrollView);
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mCardScrollView.activate();
+    }
+
+    @Override
+    protected void onPause() {
+        mCardScrollView.deactivate();
+        super.onPause();
+    }
+
 
     private void createCards() {
         mCards = new ArrayList<CardBuilder>();
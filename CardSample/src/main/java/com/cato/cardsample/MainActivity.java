@@ -36,6 +36,18 @@ public class MainActivity extends Activity {
         setContentView(mCardScrollView);
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mCardScrollView.activate();
+    }
+
+    @Override
+    protected void onPause() {
+        mCardScrollView.deactivate();
+        super.onPause();
+    }
+
     private void createCards() {
         mCards = new ArrayList<CardBuilder>();
         mCards.add(new CardBuilder(this, CardBuilder.Layout.MENU)
@@ -126,6 +138,10 @@ public class MainActivity extends Activity {
                 .setEmbeddedLayout(R.layout.food_table)
                 .setFootnote("Foods you tracked")
                 .setTimestamp("today"));
+
+        for (CardBuilder card : mCards) {
+            card.prepareText();
+        }
     }
 
     private class ExampleCardScrollAdapter extends CardScrollAdapter {
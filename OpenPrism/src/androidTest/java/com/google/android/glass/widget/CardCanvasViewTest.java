@@ -0,0 +1,170 @@
+package com.google.android.glass.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.glass.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks that a card drawn by a {@link CardCanvasView} puts its texts and images where the views
+ * {@link CardViewFactory} builds for it do, so that the two cannot drift apart as the layouts
+ * change.
+ * <p>
+ * Every layout but {@link CardBuilder.Layout#EMBED_INSIDE} is built both ways with the same
+ * content and one to five images, measured and laid out at the size of the display, without being
+ * attached to a window. Texts are compared by the bounds of their text views, and images by the
+ * bounds within the padding of their image views.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CardCanvasViewTest {
+   /** Largest difference allowed, in pixels, for sizes that views and the card round apart. */
+   private static final int TOLERANCE = 2;
+   private static final int[] IDS = {
+         R.id.card_heading, R.id.card_subheading, R.id.card_text, R.id.card_footnote, R.id.card_timestamp,
+         R.id.card_image_1, R.id.card_image_2, R.id.card_image_3, R.id.card_image_4, R.id.card_image_5,
+         R.id.card_image_overlay, R.id.image_dim, R.id.card_stack_indicator, R.id.card_icon,
+         R.id.card_attribution_icon
+   };
+
+   @Test
+   public void drawsTextsAndImagesWhereTheViewsShowThem() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               DisplayMetrics metrics = activity.getResources().getDisplayMetrics();
+               ViewGroup parent = new FrameLayout(activity);
+               Rect viewBounds = new Rect();
+               Rect canvasBounds = new Rect();
+               for (CardBuilder.Layout layout : CardBuilder.Layout.values()) {
+                  if (layout == CardBuilder.Layout.EMBED_INSIDE) {
+                     continue;
+                  }
+                  int compared = 0;
+                  int largestDifference = 0;
+                  for (int imageCount = 1; imageCount <= 5; imageCount++) {
+                     CardBuilder card = createCard(activity, layout, imageCount);
+                     View views = layout(card.setCanvasRendering(false).getView(null, parent), metrics);
+                     View canvas = layout(card.setCanvasRendering(true).getView(null, parent), metrics);
+                     assertTrue(layout + " is not drawn by a CardCanvasView", canvas instanceof CardCanvasView);
+                     for (int id : IDS) {
+                        String name = layout + " with " + imageCount + " images, " + activity.getResources().getResourceEntryName(id);
+                        boolean inViews = getViewBounds(views, id, viewBounds);
+                        boolean inCanvas = ((CardCanvasView) canvas).getBounds(id, canvasBounds);
+                        assertEquals(name + ": shown by the views", inViews, inCanvas);
+                        if (!inViews) {
+                           continue;
+                        }
+                        int difference = getDifference(viewBounds, canvasBounds);
+                        assertTrue(name + ": " + viewBounds.toShortString() + " in the views, "
+                              + canvasBounds.toShortString() + " in the card", difference <= TOLERANCE);
+                        compared++;
+                        largestDifference = Math.max(largestDifference, difference);
+                     }
+                  }
+                  Log.i("OpenPrism", String.format("CardCanvasViewTest %s: %d bounds compared, largest difference %d",
+                        layout, compared, largestDifference));
+               }
+            }
+         });
+      }
+   }
+
+   @Test
+   public void drawsItsImagesWithoutImageViews() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               Drawable image = createImage(0xFF336699);
+               View canvas = new CardBuilder(activity, CardBuilder.Layout.TEXT)
+                     .setText("Text")
+                     .addImage(image)
+                     .setCanvasRendering(true)
+                     .getView(null, new FrameLayout(activity));
+               assertTrue(canvas instanceof CardCanvasView);
+               assertSame("the card is the callback of its images", canvas, image.getCallback());
+            }
+         });
+      }
+   }
+
+   private static CardBuilder createCard(Context context, CardBuilder.Layout layout, int imageCount) {
+      CardBuilder card = new CardBuilder(context, layout)
+            .setHeading("Heading")
+            .setSubheading("Subheading")
+            .setText("The quick brown fox jumps over the lazy dog, and then over the lazy dog again")
+            .setFootnote("Footnote")
+            .setTimestamp("just now")
+            .setIcon(createImage(0xFF3366CC))
+            .setAttributionIcon(createImage(0xFFCC6633))
+            .showStackIndicator(true);
+      for (int i = 0; i < imageCount; i++) {
+         card.addImage(createImage(0xFF000000 | (0x333333 * (i + 1))));
+      }
+      return card;
+   }
+
+   private static Drawable createImage(int color) {
+      return new ColorDrawable(color);
+   }
+
+   private static View layout(View view, DisplayMetrics metrics) {
+      view.measure(View.MeasureSpec.makeMeasureSpec(metrics.widthPixels, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(metrics.heightPixels, View.MeasureSpec.EXACTLY));
+      view.layout(0, 0, metrics.widthPixels, metrics.heightPixels);
+      return view;
+   }
+
+   /**
+    * Sets {@code outBounds} to the bounds of the view with the given ID within {@code root}, within
+    * its padding for image views.
+    * @return whether the view is shown
+    */
+   private static boolean getViewBounds(View root, int id, Rect outBounds) {
+      View view = root.findViewById(id);
+      if (view == null) {
+         return false;
+      }
+      int left = 0;
+      int top = 0;
+      for (View v = view; v != root; v = (View) v.getParent()) {
+         if (v.getVisibility() != View.VISIBLE) {
+            return false;
+         }
+         left += v.getLeft();
+         top += v.getTop();
+      }
+      outBounds.set(left, top, left + view.getWidth(), top + view.getHeight());
+      if (view instanceof ImageView) {
+         outBounds.left += view.getPaddingLeft();
+         outBounds.top += view.getPaddingTop();
+         outBounds.right -= view.getPaddingRight();
+         outBounds.bottom -= view.getPaddingBottom();
+      }
+      return true;
+   }
+
+   private static int getDifference(Rect a, Rect b) {
+      return Math.max(Math.max(Math.abs(a.left - b.left), Math.abs(a.top - b.top)),
+            Math.max(Math.abs(a.right - b.right), Math.abs(a.bottom - b.bottom)));
+   }
+}
@@ -0,0 +1,132 @@
+package com.google.android.glass.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks that a {@link CardScrollView} can select and show every card of a very large adapter,
+ * such as the timelines {@link PagedCardScrollAdapter} is meant for, although a view cannot be
+ * wider than {@link View#MEASURED_SIZE_MASK}. The scroller is measured and laid out at the size of
+ * the Glass display, without being attached to a window.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CardScrollViewTest {
+   private static final int COUNT = 100_000;
+   private static final int WIDTH = 640;
+   private static final int HEIGHT = 360;
+   private static final int[] HOME_POSITIONS = {0, 1, 26_213, 26_214, 50_000, 99_998, COUNT - 1};
+
+   @Test
+   public void showsEveryHomePositionOfALargeAdapter() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               CardScrollView view = new CardScrollView(activity);
+               for (int home : HOME_POSITIONS) {
+                  view.setAdapter(new CountingAdapter(home));
+                  layout(view);
+                  assertSelected(view, "home " + home, home);
+               }
+               view.setAdapter(null);
+            }
+         });
+      }
+   }
+
+   @Test
+   public void movesTheSelectionAcrossALargeAdapter() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               CardScrollView view = new CardScrollView(activity);
+               view.setAdapter(new CountingAdapter(COUNT - 1));
+               layout(view);
+               for (int position : new int[] {60_000, 10, 0}) {
+                  view.setSelection(position);
+                  settle(view);
+                  assertSelected(view, "select " + position, position);
+               }
+               view.setAdapter(null);
+            }
+         });
+      }
+   }
+
+   private static void assertSelected(CardScrollView view, String step, int position) {
+      layout(view);
+      View container = view.getChildAt(0);
+      View selected = view.getSelectedView();
+      assertEquals(step, position, view.getSelectedItemPosition());
+      assertNotNull(step, selected);
+      assertEquals(step, Integer.valueOf(position), selected.getTag());
+      assertTrue(step + ": container is " + container.getWidth() + " pixels wide",
+            container.getWidth() >= WIDTH && container.getWidth() <= View.MEASURED_SIZE_MASK);
+      assertEquals(step + ": card is off screen", 0, selected.getLeft() - view.getScrollX());
+   }
+
+   private static void layout(CardScrollView view) {
+      view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+      view.layout(0, 0, WIDTH, HEIGHT);
+   }
+
+   /** Runs the snap to the selected card to its end, as frames would. */
+   private static void settle(CardScrollView view) {
+      layout(view);
+      long end = SystemClock.uptimeMillis() + 1000;
+      while (SystemClock.uptimeMillis() < end) {
+         view.computeScroll();
+         layout(view);
+      }
+   }
+
+   /** Hands out a plain view per position, tagged with its position. */
+   private static final class CountingAdapter extends CardScrollAdapter {
+      private final int homePosition;
+
+      CountingAdapter(int homePosition) {
+         this.homePosition = homePosition;
+      }
+
+      @Override
+      public int getCount() {
+         return COUNT;
+      }
+
+      @Override
+      public Object getItem(int position) {
+         return position;
+      }
+
+      @Override
+      public int getPosition(Object item) {
+         return item instanceof Integer ? (Integer) item : AdapterView.INVALID_POSITION;
+      }
+
+      @Override
+      public int getHomePosition() {
+         return homePosition;
+      }
+
+      @Override
+      public View getView(int position, View convertView, ViewGroup parent) {
+         View view = convertView != null ? convertView : new View(parent.getContext());
+         view.setTag(position);
+         return view;
+      }
+   }
+}
@@ -0,0 +1,7 @@
+package com.google.android.glass.widget;
+
+import android.app.Activity;
+
+/** An empty activity that hosts the views under test, as {@link CardScrollView} needs an activity. */
+public class CardTestActivity extends Activity {
+}
@@ -0,0 +1,125 @@
+package com.google.android.glass.widget;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.glass.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks the views {@link CardViewFactory} builds for each {@link CardBuilder.Layout} against its
+ * {@code card_builder_*} XML layout, and logs how long each way takes to build them.
+ * <p>
+ * Both ways run a few rounds first so that class loading and resource caches do not count, and
+ * then alternate on every iteration, so that neither gets a warmer process than the other.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CardViewFactoryTest {
+   private static final int WARM_UP_ITERATIONS = 20;
+   private static final int ITERATIONS = 200;
+   /** Views that {@link CardBuilder} binds on every layout. */
+   private static final int[] REQUIRED_IDS = {
+         R.id.card_footnote, R.id.card_stack_indicator,
+         R.id.card_image_1, R.id.card_image_2, R.id.card_image_3, R.id.card_image_4, R.id.card_image_5
+   };
+
+   @Test
+   public void buildsTheViewsCardBuilderBinds() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               ViewGroup parent = new FrameLayout(activity);
+               for (CardBuilder.Layout layout : CardBuilder.Layout.values()) {
+                  View built = CardViewFactory.create(activity, layout, parent);
+                  for (int id : REQUIRED_IDS) {
+                     assertNotNull(layout + " has no " + activity.getResources().getResourceEntryName(id),
+                           built.findViewById(id));
+                  }
+                  if (layout != CardBuilder.Layout.EMBED_INSIDE) {
+                     assertNotNull(layout + " has no card_text", built.findViewById(R.id.card_text));
+                  }
+               }
+            }
+         });
+      }
+   }
+
+   @Test
+   public void buildsFlatterHierarchiesThanTheLayouts() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               LayoutInflater inflater = LayoutInflater.from(activity);
+               ViewGroup parent = new FrameLayout(activity);
+               for (CardBuilder.Layout layout : CardBuilder.Layout.values()) {
+                  int inflatedCount = countViews(inflater.inflate(CardViewFactory.getLayoutResource(layout), parent, false));
+                  int builtCount = countViews(CardViewFactory.create(activity, layout, parent));
+                  assertTrue(layout + " builds " + builtCount + " views, its layout inflates " + inflatedCount,
+                        builtCount <= inflatedCount);
+               }
+            }
+         });
+      }
+   }
+
+   /** Logs the average time per view of inflating each layout and of building it with the factory. */
+   @Test
+   public void timesInflationAgainstTheFactory() {
+      try (ActivityScenario<CardTestActivity> scenario = ActivityScenario.launch(CardTestActivity.class)) {
+         scenario.onActivity(new ActivityScenario.ActivityAction<CardTestActivity>() {
+            @Override
+            public void perform(CardTestActivity activity) {
+               LayoutInflater inflater = LayoutInflater.from(activity);
+               ViewGroup parent = new FrameLayout(activity);
+               for (CardBuilder.Layout layout : CardBuilder.Layout.values()) {
+                  int layoutRes = CardViewFactory.getLayoutResource(layout);
+                  for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+                     inflater.inflate(layoutRes, parent, false);
+                     CardViewFactory.create(activity, layout, parent);
+                  }
+                  long inflateNanos = 0;
+                  long factoryNanos = 0;
+                  for (int i = 0; i < ITERATIONS; i++) {
+                     long start = SystemClock.elapsedRealtimeNanos();
+                     inflater.inflate(layoutRes, parent, false);
+                     long middle = SystemClock.elapsedRealtimeNanos();
+                     CardViewFactory.create(activity, layout, parent);
+                     long end = SystemClock.elapsedRealtimeNanos();
+                     inflateNanos += middle - start;
+                     factoryNanos += end - middle;
+                  }
+                  float inflateMicros = inflateNanos / 1000f / ITERATIONS;
+                  float factoryMicros = factoryNanos / 1000f / ITERATIONS;
+                  Log.i("OpenPrism", String.format("CardViewFactoryTest %s: inflate %.1f us / factory %.1f us (%.2fx)",
+                        layout, inflateMicros, factoryMicros, inflateMicros / Math.max(0.001f, factoryMicros)));
+               }
+            }
+         });
+      }
+   }
+
+   private static int countViews(View view) {
+      int count = 1;
+      if (view instanceof ViewGroup) {
+         ViewGroup group = (ViewGroup) view;
+         for (int i = 0; i < group.getChildCount(); i++) {
+            count += countViews(group.getChildAt(i));
+         }
+      }
+      return count;
+   }
+}
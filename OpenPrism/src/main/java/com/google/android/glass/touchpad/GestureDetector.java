@@ -85,6 +85,11 @@ public class GestureDetector {
       boolean consumed = false;
       //Log.d("OpenPrism", "Pointer count: " + event.getPointerCount());
       //Log.d("OpenPrism", "Action:" + event.getAction());
+      if (event.getAction() == MotionEvent.ACTION_CANCEL) {
+         // The rest of the gesture went to someone else, e.g. a CardScrollView that started scrolling
+         fingerCount = 0;
+         return false;
+      }
       if (event.getPointerCount() > fingerCount) fingerCount = event.getPointerCount();
       if (event.getAction() == MotionEvent.ACTION_DOWN) {
          startTouchX = event.getX(0);
@@ -1,13 +1,13 @@
 package com.google.android.glass.widget;
 
-import static androidx.core.widget.TextViewCompat.setAutoSizeTextTypeUniformWithPresetSizes;
-import static androidx.core.widget.TextViewCompat.setAutoSizeTextTypeWithDefaults;
-
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.drawable.BitmapDrawable;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -20,6 +20,7 @@ import android.widget.TextView;
 
 import com.google.android.glass.R;
 
+import java.io.File;
 import java.util.ArrayList;
 
 /**
@@ -38,21 +39,33 @@ import java.util.ArrayList;
  * </ol>
  *
  * <h3>Recycling note for embedded layouts</h3>
- * When using {@link CardBuilder.Layout#EMBED_INSIDE}, {@code CardBuilder} makes no distinction
- * between different embedded layouts when recycling views. If you have two {@code CardBuilder}
- * instances with {@code EMBED_INSIDE} but one has layout A and the other has layout B, they will
- * be treated as the same by {@code CardBuilder}.
+ * When using {@link CardBuilder.Layout#EMBED_INSIDE}, {@link #getItemViewType()} reports a
+ * separate view type for each embedded layout resource, so that the recycler only sends you
+ * {@code convertView}s with the nested layout you expect. Only the first few embedded layouts
+ * used by the process get their own view type; any further ones share the view type of
+ * {@code EMBED_INSIDE}.
  * <p>
- * If this behavior is undesirable (for example, when using a {@link com.google.android.glass.widget.CardScrollAdapter} with
- * different embedded layouts), you must distinguish them by returning different view types from
- * {@link com.google.android.glass.widget.CardScrollAdapter#getItemViewType(int)} so that the recycler only sends you
- * {@code convertView}s with nested layouts that you expect for a particular item.
+ * If you use many different embedded layouts, you can still distinguish them yourself by
+ * returning different view types from
+ * {@link com.google.android.glass.widget.CardScrollAdapter#getItemViewType(int)}.
  * <p>
  * If you need to support cards with multiple embedded layouts alongside the built-in layouts,
  * we recommend that you return view types numbered {@link #getViewTypeCount()},
  * {@code CardBuilder.getViewTypeCount() + 1}, and so on.
  */
 public class CardBuilder {
+   /** Number of view types reserved for distinct {@link Layout#EMBED_INSIDE} layouts. */
+   private static final int MAX_EMBEDDED_VIEW_TYPES = 16;
+   private static final int LAYOUT_VIEW_TYPES = Layout.values().length;
+   /** First view type of the cards drawn by a {@link CardCanvasView}, one per layout. */
+   private static final int CANVAS_VIEW_TYPES_START = LAYOUT_VIEW_TYPES + MAX_EMBEDDED_VIEW_TYPES;
+   /** Embedded layout resource ID to the view type assigned to it, shared by the whole process. */
+   private static final SparseIntArray embeddedViewTypes = new SparseIntArray();
+   /** Whether cards that do not choose are drawn by a {@link CardCanvasView}. */
+   private static boolean defaultCanvasRendering = false;
+   private static final int[] REMOTE_IMAGE_IDS = {
+         R.id.card_image_1, R.id.card_image_2, R.id.card_image_3, R.id.card_image_4, R.id.card_image_5
+   };
 
    private final Context context;
    private final Layout layout;
@@ -61,11 +74,28 @@ public class CardBuilder {
    private CharSequence text;
    private CharSequence footnote;
    private CharSequence timestamp;
-   private Drawable icon;
-   private Drawable attributionIcon;
+   private CardImage icon;
+   private CardImage attributionIcon;
    private Boolean showStackIndicator = false;
    private int embeddedLayoutId = 0;
-   private ArrayList<Drawable> images = new ArrayList<>();
+   private ArrayList<CardImage> images = new ArrayList<>();
+   private boolean compositeImages = false;
+   /** Whether the card is drawn by a {@link CardCanvasView}, or {@code null} to follow the default. */
+   private Boolean canvasRendering;
+   /** The composited images, when {@link #compositeImages} is set and the layout supports it. */
+   private CardMosaic mosaic;
+   /**
+    * Number of views bound to this card that show its images, not counting the views whose images
+    * were released with {@link #releaseImages(View)}. The images are released when it drops to 0,
+    * so that a bitmap another view still shows is never given back to {@link CardImageCache}.
+    */
+   private int imageHolderCount = 0;
+   /** The spec of the current content, taken on demand and dropped whenever the content changes. */
+   private CardSpec spec;
+   /** Incremented whenever the content changes, so that views can tell whether they still show it. */
+   private int version = 0;
+   /** Incremented whenever images or icons are added, replaced or cleared. */
+   private int imageVersion = 0;
 
    /**
     * Constructs a new {@code CardBuilder}
@@ -84,6 +114,7 @@ public class CardBuilder {
     */
    public CardBuilder setText(CharSequence text) {
       this.text = text;
+      onContentChanged();
       return this;
    }
 
@@ -94,11 +125,13 @@ public class CardBuilder {
     */
    public CardBuilder setText(int textId) {
       this.text = context.getString(textId);
+      onContentChanged();
       return this;
    }
 
    public CardBuilder setFootnote(CharSequence footnote) {
       this.footnote = footnote;
+      onContentChanged();
       return this;
    }
 
@@ -109,6 +142,7 @@ public class CardBuilder {
     */
    public CardBuilder setFootnote(int footnoteId) {
       this.footnote = context.getString(footnoteId);
+      onContentChanged();
       return this;
    }
 
@@ -119,6 +153,7 @@ public class CardBuilder {
     */
    public CardBuilder setTimestamp(CharSequence timestamp) {
       this.timestamp = timestamp;
+      onContentChanged();
       return this;
    }
 
@@ -129,6 +164,7 @@ public class CardBuilder {
     */
    public CardBuilder setTimestamp(int timestampId) {
       this.timestamp = context.getString(timestampId);
+      onContentChanged();
       return this;
    }
 
@@ -139,6 +175,7 @@ public class CardBuilder {
     */
    public CardBuilder setHeading(CharSequence heading) {
       this.heading = heading;
+      onContentChanged();
       return this;
    }
 
@@ -149,6 +186,7 @@ public class CardBuilder {
     */
    public CardBuilder setHeading(int headingId) {
       this.heading = context.getString(headingId);
+      onContentChanged();
       return this;
    }
 
@@ -159,6 +197,7 @@ public class CardBuilder {
     */
    public CardBuilder setSubheading(CharSequence subheading) {
       this.subheading = subheading;
+      onContentChanged();
       return this;
    }
 
@@ -169,6 +208,7 @@ public class CardBuilder {
     */
    public CardBuilder setSubheading(int subheadingId) {
       this.subheading = context.getString(subheadingId);
+      onContentChanged();
       return this;
    }
 
@@ -184,7 +224,7 @@ public class CardBuilder {
     * @return this object for call chaining
     */
    public CardBuilder addImage(Drawable imageDrawable) {
-      this.images.add(imageDrawable);
+      addCardImage(CardImage.fromDrawable(imageDrawable));
       return this;
    }
 
@@ -194,7 +234,7 @@ public class CardBuilder {
     * @return            this object for call chaining
     */
    public CardBuilder addImage(Bitmap imageBitmap) {
-      this.images.add(new BitmapDrawable(context.getResources(), imageBitmap));
+      addCardImage(CardImage.fromBitmap(imageBitmap));
       return this;
    }
 
@@ -204,13 +244,134 @@ public class CardBuilder {
     * @return        this object for call chaining
     */
    public CardBuilder addImage(int imageId) {
-      this.images.add(context.getResources().getDrawable(imageId));
+      addCardImage(CardImage.fromSource(CardImageCache.Source.fromResource(context.getResources(), imageId)));
+      return this;
+   }
+
+   /**
+    * Adds an image, specified as a file such as the picture or thumbnail of
+    * {@link com.google.android.glass.content.Intents#EXTRA_PICTURE_FILE_PATH}, to the card. The file
+    * is only read when the card is shown, at the size it is shown at.
+    * @param imageFile the image file to add
+    * @return          this object for call chaining
+    */
+   public CardBuilder addImage(File imageFile) {
+      addCardImage(CardImage.fromSource(CardImageCache.Source.fromFile(imageFile.getPath())));
+      return this;
+   }
+
+   /**
+    * Adds an image, specified as a {@code content:}, {@code file:} or {@code android.resource:}
+    * {@link android.net.Uri}, to the card. The image is only read when the card is shown, at the
+    * size it is shown at.
+    * @param imageUri the {@code Uri} of the image to add
+    * @return         this object for call chaining
+    */
+   public CardBuilder addImage(Uri imageUri) {
+      addCardImage(CardImage.fromSource(CardImageCache.Source.fromUri(imageUri)));
       return this;
    }
 
+   private void addCardImage(CardImage image) {
+      this.images.add(image);
+      if (mosaic != null) {
+         mosaic.release();
+      }
+      onImagesChanged();
+   }
+
    /** Clears all images that were previously added to the card. */
    public void clearImages() {
       this.images.clear();
+      if (mosaic != null) {
+         mosaic.release();
+      }
+      onImagesChanged();
+   }
+
+   /** Drops the spec of the previous content, and has the views that showed it bind the card again. */
+   private void onContentChanged() {
+      spec = null;
+      version++;
+   }
+
+   /**
+    * Like {@link #onContentChanged()}, for new images: views that showed the previous ones bind the
+    * card again even if the spec is equal, as their drawables belong to images the card dropped.
+    */
+   private void onImagesChanged() {
+      imageVersion++;
+      onContentChanged();
+   }
+
+   /**
+    * Draws the images of {@link Layout#TEXT}, {@link Layout#TEXT_FIXED}, {@link Layout#COLUMNS}
+    * and {@link Layout#COLUMNS_FIXED} cards into a single bitmap on a background thread, shown by a
+    * single view in place of the image views and the views layered over them. This saves drawing
+    * them on every frame while cards scroll, at the cost of a placeholder until the bitmap is ready.
+    * <p>
+    * Only applies to cards that are converted into views using {@link #getView()}, and is ignored
+    * for cards with images added as a {@link android.graphics.drawable.Drawable}.
+    *
+    * @param composite true to composite the images, false to show them in separate views
+    * @return          this object for call chaining
+    */
+   public CardBuilder setCompositeImages(boolean composite) {
+      this.compositeImages = composite;
+      onContentChanged();
+      return this;
+   }
+
+   /**
+    * Starts preparing the text of the card on a background thread: its size is fitted to a full-screen card,
+    * and it is shaped and measured for the text style of the card, so that {@link #getView()} only
+    * has to attach it. Call it once the text is set, before the card is shown, for instance when the
+    * cards of an adapter are built; a card bound before its text is prepared shows it right away
+    * and prepares it then.
+    * <p>
+    * Only applies to the {@link Layout#AUTHOR}, {@link Layout#CAPTION}, {@link Layout#COLUMNS},
+    * {@link Layout#COLUMNS_FIXED}, {@link Layout#TEXT} and {@link Layout#TEXT_FIXED} layouts.
+    *
+    * @return this object for call chaining
+    */
+   public CardBuilder prepareText() {
+      CardTextPreparer.prepare(context, text, layout, null);
+      return this;
+   }
+
+   /**
+    * Draws the card in a single view, instead of a view per image, icon and text, which saves
+    * measuring, laying out and drawing a dozen views per card on low-end devices. The card looks
+    * the same either way. Overrides {@link #setDefaultCanvasRendering(boolean)} for this card.
+    * <p>
+    * Only applies to cards that are converted into views using {@link #getView()}, and is ignored
+    * for {@link Layout#EMBED_INSIDE} cards. Cards drawn in a single view have view types of their
+    * own, see {@link #getItemViewType()}.
+    *
+    * @param canvas true to draw the card in a single view, false to build a view hierarchy
+    * @return       this object for call chaining
+    */
+   public CardBuilder setCanvasRendering(boolean canvas) {
+      this.canvasRendering = canvas;
+      onContentChanged();
+      return this;
+   }
+
+   /**
+    * Sets whether the cards that do not call {@link #setCanvasRendering(boolean)} are drawn in a
+    * single view. Set it before any card is shown, as it changes their view types.
+    * @param canvas true to draw cards in a single view by default, false to build view hierarchies
+    */
+   public static void setDefaultCanvasRendering(boolean canvas) {
+      defaultCanvasRendering = canvas;
+   }
+
+   /** @return whether the views of this card are drawn by a {@link CardCanvasView} */
+   private boolean isCanvasRendered() {
+      if (layout == Layout.EMBED_INSIDE) {
+         return false;
+      }
+      return canvasRendering != null ? canvasRendering : defaultCanvasRendering;
    }
 
    /**
@@ -224,7 +385,8 @@ public class CardBuilder {
     * @return             this object for call chaining
     */
    public CardBuilder setIcon(Drawable iconDrawable) {
-      this.icon = iconDrawable;
+      this.icon = CardImage.fromDrawable(iconDrawable);
+      onImagesChanged();
       return this;
    }
 
@@ -234,7 +396,8 @@ public class CardBuilder {
     * @return           this object for call chaining
     */
    public CardBuilder setIcon(Bitmap iconBitmap) {
-      this.icon = new BitmapDrawable(context.getResources(), iconBitmap);
+      this.icon = CardImage.fromBitmap(iconBitmap);
+      onImagesChanged();
       return this;
    }
 
@@ -244,7 +407,8 @@ public class CardBuilder {
     * @return       this object for call chaining
     */
    public CardBuilder setIcon(int iconId) {
-      this.icon = context.getResources().getDrawable(iconId);
+      this.icon = CardImage.fromSource(CardImageCache.Source.fromResource(context.getResources(), iconId));
+      onImagesChanged();
       return this;
    }
 
@@ -259,7 +423,8 @@ public class CardBuilder {
     * @return             this object for call chaining
     */
    public CardBuilder setAttributionIcon(Drawable iconDrawable) {
-      this.attributionIcon = iconDrawable;
+      this.attributionIcon = CardImage.fromDrawable(iconDrawable);
+      onImagesChanged();
       return this;
    }
 
@@ -269,7 +434,8 @@ public class CardBuilder {
     * @return           this object for call chaining
     */
    public CardBuilder setAttributionIcon(Bitmap iconBitmap) {
-      this.attributionIcon = new BitmapDrawable(context.getResources(), iconBitmap);
+      this.attributionIcon = CardImage.fromBitmap(iconBitmap);
+      onImagesChanged();
       return this;
    }
 
@@ -279,7 +445,8 @@ public class CardBuilder {
     * @return       this object for call chaining
     */
    public CardBuilder setAttributionIcon(int iconId) {
-      this.attributionIcon = context.getResources().getDrawable(iconId);
+      this.attributionIcon = CardImage.fromSource(CardImageCache.Source.fromResource(context.getResources(), iconId));
+      onImagesChanged();
       return this;
    }
 
@@ -290,6 +457,7 @@ public class CardBuilder {
     */
    public CardBuilder showStackIndicator(boolean visible) {
       this.showStackIndicator = visible;
+      onContentChanged();
       return this;
    }
 
@@ -300,9 +468,28 @@ public class CardBuilder {
     */
    public CardBuilder setEmbeddedLayout(int layoutResId) {
       this.embeddedLayoutId = layoutResId;
+      onContentChanged();
       return this;
    }
 
+   /**
+    * Takes an immutable description of the current content of this card, which can be compared to
+    * tell whether two cards look the same. The spec is taken the first time it is asked for and kept
+    * until a setter changes the card, so asking again is free; a text changed in place after it was
+    * set is not picked up until it is set again. Safe to call on any thread, as long as the card is
+    * not changed at the same time.
+    * @return the spec of this card
+    */
+   public CardSpec getSpec() {
+      CardSpec spec = this.spec;
+      if (spec == null) {
+         spec = new CardSpec(layout, heading, subheading, text, footnote, timestamp, images, icon, attributionIcon,
+               showStackIndicator, embeddedLayoutId, compositeImages, canvasRendering);
+         this.spec = spec;
+      }
+      return spec;
+   }
+
    /** @return a representation of this card. */
    public View getView() {
       return getView(null, null);
@@ -311,146 +498,290 @@ public class CardBuilder {
    /**
     * Useful in combination with an adapter. See
     * {@link android.widget.Adapter#getView(int, android.view.View, android.view.ViewGroup)}.
+    * <p>
+    * If {@code convertView} already shows this card, and the card was not changed through its
+    * setters since, or only set to texts and flags that leave its {@link #getSpec() spec} equal,
+    * it is returned as it is without being bound again.
     * @param convertView an old view to reuse, if possible; can be {@code null}
     *                    Note: if this view does not have the right type, this method creates a new view
     * @param parent     that this view will eventually be attached to, maybe {@code null}
     * @return            a {@link android.view.View} representation of this card.
     */
    public View getView(View convertView, ViewGroup parent) {
-      LayoutInflater inflater = LayoutInflater.from(context);
-      View layout = null;
-      if (this.layout == Layout.MENU) {
-         layout = inflater.inflate(R.layout.card_builder_menu, parent, false);
-      } else if (this.layout == Layout.AUTHOR || this.layout == Layout.TEXT || this.layout == Layout.TEXT_FIXED) {
-         layout = inflater.inflate(R.layout.card_builder_author, parent, false);
-      } else if (this.layout == Layout.CAPTION) {
-         layout = inflater.inflate(R.layout.card_builder_caption, parent, false);
-      } else if (this.layout == Layout.TITLE) {
-         layout = inflater.inflate(R.layout.card_builder_title, parent, false);
-      } else if (this.layout == Layout.COLUMNS || this.layout == Layout.COLUMNS_FIXED) {
-         layout = inflater.inflate(R.layout.card_builder_columns, parent, false);
-      } else if (this.layout == Layout.EMBED_INSIDE) {
-         layout = inflater.inflate(R.layout.card_builder_embed, parent, false);
-      } else if (this.layout == Layout.ALERT) {
-         layout = inflater.inflate(R.layout.card_builder_author, parent, false);
-      } else {
-         Log.e("OpenPrism", "Unsupported layout type: " + this.layout);
-         layout = inflater.inflate(R.layout.card_builder_menu, parent, false); //Default to menu layout
-      }
-
-      ImageView imageView1 = layout.findViewById(R.id.card_image_1);
-      ImageView imageView2 = layout.findViewById(R.id.card_image_2);
-      ImageView imageView3 = layout.findViewById(R.id.card_image_3);
-      ImageView imageView4 = layout.findViewById(R.id.card_image_4);
-      ImageView imageView5 = layout.findViewById(R.id.card_image_5);
-      ImageView[] imageViews = {imageView1, imageView2, imageView3, imageView4, imageView5};
-      LinearLayout imagesBottomRow = layout.findViewById(R.id.card_images_bottom_row);
-      LinearLayout imagesRightColumn = layout.findViewById(R.id.card_images_right_column);
-      ImageView iconView = layout.findViewById(R.id.card_icon);
-      ImageView stackIndicator = layout.findViewById(R.id.card_stack_indicator);
-      ImageView attributionIconView = layout.findViewById(R.id.card_attribution_icon);
-      TextView textView = layout.findViewById(R.id.card_text);
-      TextView headingView = layout.findViewById(R.id.card_heading);
-      TextView subheadingView = layout.findViewById(R.id.card_subheading);
-      TextView footnoteView = layout.findViewById(R.id.card_footnote);
-      TextView timestampView = layout.findViewById(R.id.card_timestamp);
-      ViewGroup embedContainer = layout.findViewById(R.id.card_embed_container);
-
-      if (showStackIndicator) {
-         stackIndicator.setVisibility(View.VISIBLE);
-      } else {
-         stackIndicator.setVisibility(View.GONE);
-      }
-
-      for (int i = 0; i < imageViews.length; i++) {
-         if (i < images.size()) {
-            imageViews[i].setImageDrawable(images.get(i));
-            imageViews[i].setVisibility(View.VISIBLE);
-         } else {
-            imageViews[i].setVisibility(View.GONE);
+      ViewHolder holder = null;
+      if (convertView != null) {
+         Object tag = convertView.getTag(R.id.card_view_holder);
+         if (tag instanceof ViewHolder && ((ViewHolder) tag).matches(this)) {
+            holder = (ViewHolder) tag;
+            if (holder.isBoundTo(this)) {
+               return holder.root;
+            }
          }
       }
-      if (images.size() <= 3) {
-         imagesBottomRow.setVisibility(View.GONE);
-      }
-      if (images.size() <= 1) {
-         imagesRightColumn.setVisibility(View.GONE);
-      }
-
-      if (iconView != null) {
-         if (icon != null) {
-            iconView.setVisibility(View.VISIBLE);
-            iconView.setImageDrawable(icon);
+      if (holder == null) {
+         CardViewPool pool = CardViewPool.from(parent);
+         View pooled = pool != null ? pool.take(context, getItemViewType()) : null;
+         if (pooled != null) {
+            holder = (ViewHolder) pooled.getTag(R.id.card_view_holder);
          } else {
-            iconView.setVisibility(View.GONE);
+            holder = createView(parent);
          }
       }
+      bindView(holder);
+      holder.boundVersion = version;
+      holder.boundImageVersion = imageVersion;
+      holder.boundSpec = getSpec();
+      return holder.root;
+   }
 
-      if (attributionIconView != null) {
-         if (attributionIcon != null) {
-            attributionIconView.setVisibility(View.VISIBLE);
-            attributionIconView.setImageDrawable(attributionIcon);
-         } else {
-            attributionIconView.setVisibility(View.GONE);
-         }
+   /**
+    * Builds an unbound view for this card's layout, for {@link CardViewPool}.
+    */
+   View createSkeleton() {
+      return createView(null).root;
+   }
+
+   /** Builds the view hierarchy for this card and resolves its child views once. */
+   private ViewHolder createView(ViewGroup parent) {
+      if (isCanvasRendered()) {
+         CardCanvasView view = new CardCanvasView(context, this.layout);
+         ViewHolder holder = new ViewHolder(view, this.layout, 0);
+         view.setTag(R.id.card_view_holder, holder);
+         return holder;
       }
+      View layout = CardViewFactory.create(context, this.layout, parent);
 
-      if (headingView != null) {
-         if (heading != null) {
-            headingView.setVisibility(View.VISIBLE);
-            headingView.setText(heading);
-         } else {
-            headingView.setVisibility(View.GONE);
+      ViewHolder holder = new ViewHolder(layout, this.layout, this.embeddedLayoutId);
+      if (holder.embedContainer != null) {
+         if (this.embeddedLayoutId == 0 && this.layout == Layout.EMBED_INSIDE) {
+            throw new IllegalStateException("You must set a valid layout ID with setEmbeddedLayout() when using CardBuilder.Layout.EMBED_INSIDE.");
+         } else if (this.embeddedLayoutId != 0) {
+            LayoutInflater.from(context).inflate(this.embeddedLayoutId, holder.embedContainer);
          }
       }
+      layout.setTag(R.id.card_view_holder, holder);
+      return holder;
+   }
 
-      if (subheadingView != null) {
-         if (subheading != null) {
-            subheadingView.setVisibility(View.VISIBLE);
-            subheadingView.setText(subheading);
-         } else {
-            subheadingView.setVisibility(View.GONE);
+   /** Sets the content of this card on an inflated view; only touches content and visibility. */
+   private void bindView(ViewHolder holder) {
+      if (holder.boundCard != this) {
+         if (holder.boundCard != null && !holder.imagesReleased) {
+            holder.boundCard.removeImageHolder();
          }
+         holder.boundCard = this;
+         // Counted as a holder of the images once they are bound
+         holder.imagesReleased = true;
+      }
+      if (holder.stackIndicator != null) {
+         holder.stackIndicator.setVisible(showStackIndicator);
+      }
+      bindImages(holder);
+      bindText(holder.headingView, heading);
+      bindText(holder.subheadingView, subheading);
+      bindText(holder.timestampView, timestamp);
+      if (holder.textView != null && CardTextPreparer.isSupported(layout)) {
+         CardTextPreparer.bindText(holder.root, holder.textView, text, layout);
+      } else {
+         bindText(holder.textView, text);
       }
 
-      if (timestampView != null) {
-         if (timestamp != null) {
-            timestampView.setVisibility(View.VISIBLE);
-            timestampView.setText(timestamp);
-         } else {
-            timestampView.setVisibility(View.GONE);
-         }
+      if (holder.footnoteView != null) {
+         holder.footnoteView.setText(footnote);
+      }
+      if (holder.canvasView != null) {
+         holder.canvasView.bind(heading, subheading, text, footnote, timestamp);
       }
+   }
 
-      if (textView != null) {
-         if (text != null) {
-            textView.setVisibility(View.VISIBLE);
-            if (this.layout == Layout.TEXT_FIXED || this.layout == Layout.COLUMNS_FIXED) {
-               setAutoSizeTextTypeWithDefaults(textView, 0);
+   private void bindImages(ViewHolder holder) {
+      if (holder.imagesReleased) {
+         holder.imagesReleased = false;
+         imageHolderCount++;
+      }
+      DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      CardImageTarget[] imageTargets = holder.imageTargets;
+      boolean composite = compositeImages && imageTargets[0] != null && CardMosaic.isSupported(layout, images);
+      // A composited mosaic is shown by the first image alone, with the overlay and dim drawn in
+      int count = composite ? 1 : Math.min(images.size(), imageTargets.length);
+      Rect bounds = holder.imageBounds;
+      for (int i = 0; i < imageTargets.length; i++) {
+         if (imageTargets[i] == null) {
+            continue;
+         }
+         if (i < count) {
+            if (composite) {
+               if (mosaic == null) {
+                  mosaic = new CardMosaic(context, layout);
+               }
+               mosaic.show(imageTargets[i], images);
+            } else {
+               CardImageSlots.getImageBounds(layout, i, count, metrics, bounds);
+               showImage(imageTargets[i], images.get(i), bounds.width(), bounds.height());
             }
-            textView.setText(text);
+            imageTargets[i].setVisible(true);
          } else {
-            textView.setVisibility(View.GONE);
+            clearImage(imageTargets[i]);
+            imageTargets[i].setVisible(false);
          }
       }
+      if (holder.imagesBottomRow != null) {
+         setVisible(holder.imagesBottomRow, count > 3);
+      }
+      if (holder.imagesRightColumn != null) {
+         setVisible(holder.imagesRightColumn, count > 1);
+      }
+      if (holder.imageOverlay != null) {
+         holder.imageOverlay.setVisible(!composite);
+      }
+      if (holder.imageDim != null) {
+         holder.imageDim.setVisible(!composite);
+      }
 
-      if (footnote != null) {
-         footnoteView.setText(footnote);
+      bindImage(holder.iconTarget, icon, CardImageSlots.getIconSize(layout, metrics));
+      bindImage(holder.attributionIconTarget, attributionIcon, CardImageSlots.getAttributionIconSize(metrics));
+   }
+
+   private void bindImage(CardImageTarget target, CardImage image, int size) {
+      if (target == null) {
+         return;
       }
-      if (embedContainer != null) {
-         if (this.embeddedLayoutId == 0 && this.layout == Layout.EMBED_INSIDE) {
-            throw new IllegalStateException("You must set a valid layout ID with setEmbeddedLayout() when using CardBuilder.Layout.EMBED_INSIDE.");
-         } else if (this.embeddedLayoutId != 0) {
-            inflater.inflate(this.embeddedLayoutId, embedContainer);
+      if (image != null) {
+         target.setVisible(showImage(target, image, size, size));
+      } else {
+         clearImage(target);
+         target.setVisible(false);
+      }
+   }
+
+   /**
+    * Shows an image in a target of the given size; files and Uris are loaded off the main thread.
+    * @return whether there is something to show, the image or a placeholder for it
+    */
+   private boolean showImage(CardImageTarget target, CardImage image, int width, int height) {
+      if (image.isDeferred()) {
+         CardImageLoader.load(context, image, target, width, height);
+         return true;
+      }
+      CardImageLoader.cancel(target);
+      Drawable drawable = image.getDrawable(context, width, height);
+      target.setImageDrawable(drawable);
+      return drawable != null;
+   }
+
+   private static void bindText(TextView view, CharSequence content) {
+      if (view != null) {
+         if (content != null) {
+            view.setText(content);
          }
+         setVisible(view, content != null);
       }
+   }
 
-      return layout;
+   private static void setVisible(View view, boolean visible) {
+      int visibility = visible ? View.VISIBLE : View.GONE;
+      if (view.getVisibility() != visibility) {
+         view.setVisibility(visibility);
+      }
    }
 
-   /** @return a {@link android.widget.RemoteViews} representation of this card. */
+   /**
+    * Builds a {@link android.widget.RemoteViews} representation of this card, sized for the
+    * display of the builder's context. Images are downscaled to the size they are shown at and
+    * each distinct image is sent once; see {@link RemoteCardImages}.
+    * @return a {@link android.widget.RemoteViews} representation of this card.
+    */
    public RemoteViews getRemoteViews() {
-      throw new RuntimeException("Unimplemented method: getRemoteViews()");
+      if (layout == Layout.EMBED_INSIDE && embeddedLayoutId == 0) {
+         throw new IllegalStateException("You must set a valid layout ID with setEmbeddedLayout() when using CardBuilder.Layout.EMBED_INSIDE.");
+      }
+      String packageName = context.getPackageName();
+      RemoteViews views = new RemoteViews(packageName, getRemoteLayoutResource(layout));
+      DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+
+      views.setViewVisibility(R.id.card_stack_indicator, showStackIndicator ? View.VISIBLE : View.GONE);
+
+      RemoteCardImages remoteImages = new RemoteCardImages(context);
+      addRemoteMosaic(remoteImages, metrics);
+      views.setViewVisibility(R.id.card_images_bottom_row, images.size() > 3 ? View.VISIBLE : View.GONE);
+      views.setViewVisibility(R.id.card_images_right_column, images.size() > 1 ? View.VISIBLE : View.GONE);
+      int iconSize = CardImageSlots.getIconSize(layout, metrics);
+      if (iconSize > 0) {
+         remoteImages.add(R.id.card_icon, icon, iconSize, iconSize);
+      }
+      if (layout != Layout.MENU && layout != Layout.TITLE) {
+         int attributionIconSize = CardImageSlots.getAttributionIconSize(metrics);
+         remoteImages.add(R.id.card_attribution_icon, attributionIcon, attributionIconSize, attributionIconSize);
+      }
+      remoteImages.apply(views);
+
+      if (layout == Layout.AUTHOR) {
+         setRemoteText(views, R.id.card_heading, heading);
+         setRemoteText(views, R.id.card_subheading, subheading);
+      }
+      if (layout != Layout.ALERT && layout != Layout.MENU) {
+         setRemoteText(views, R.id.card_timestamp, timestamp);
+      }
+      views.setTextViewText(R.id.card_footnote, footnote);
+      switch (layout) {
+         case AUTHOR:
+         case CAPTION:
+         case COLUMNS:
+         case TEXT:
+            // Remote text views cannot size their text themselves
+            setRemoteText(views, R.id.card_text, text);
+            views.setTextViewTextSize(R.id.card_text, TypedValue.COMPLEX_UNIT_SP, CardTextSizer.getTextSize(text, layout, metrics));
+            break;
+         case EMBED_INSIDE:
+            views.addView(R.id.card_embed_container, new RemoteViews(packageName, embeddedLayoutId));
+            break;
+         default:
+            setRemoteText(views, R.id.card_text, text);
+            break;
+      }
+      return views;
+   }
+
+   /** Adds the image mosaic, laid out as {@link CardViewFactory} does. */
+   private void addRemoteMosaic(RemoteCardImages remoteImages, DisplayMetrics metrics) {
+      Rect bounds = new Rect();
+      int count = Math.min(images.size(), REMOTE_IMAGE_IDS.length);
+      for (int i = 0; i < REMOTE_IMAGE_IDS.length; i++) {
+         CardImageSlots.getImageBounds(layout, i, count, metrics, bounds);
+         remoteImages.add(REMOTE_IMAGE_IDS[i], i < count ? images.get(i) : null, bounds.width(), bounds.height());
+      }
+   }
+
+   private static void setRemoteText(RemoteViews views, int viewId, CharSequence content) {
+      if (content != null) {
+         views.setTextViewText(viewId, content);
+      }
+      views.setViewVisibility(viewId, content != null ? View.VISIBLE : View.GONE);
+   }
+
+   /** @return the layout inflated for the remote views of a card, made of views RemoteViews supports */
+   private static int getRemoteLayoutResource(Layout layout) {
+      switch (layout) {
+         case ALERT:
+            return R.layout.card_builder_remote_alert;
+         case AUTHOR:
+            return R.layout.card_builder_remote_author;
+         case CAPTION:
+            return R.layout.card_builder_remote_caption;
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            return R.layout.card_builder_remote_columns;
+         case EMBED_INSIDE:
+            return R.layout.card_builder_remote_embed;
+         case TEXT:
+         case TEXT_FIXED:
+            return R.layout.card_builder_remote_text;
+         case TITLE:
+            return R.layout.card_builder_remote_title;
+         case MENU:
+         default:
+            return R.layout.card_builder_remote_menu;
+      }
    }
 
    /**
@@ -458,7 +789,13 @@ public class CardBuilder {
     * @return the view type of this particular card.
     */
    public int getItemViewType() {
-      return 0;
+      if (isCanvasRendered()) {
+         return CANVAS_VIEW_TYPES_START + layout.ordinal();
+      }
+      if (layout == Layout.EMBED_INSIDE && embeddedLayoutId != 0) {
+         return getEmbeddedViewType(embeddedLayoutId);
+      }
+      return layout.ordinal();
    }
 
    /**
@@ -466,7 +803,254 @@ public class CardBuilder {
     * @return the total number of view types cards can take.
     */
    public static int getViewTypeCount() {
-      return 1;
+      return CANVAS_VIEW_TYPES_START + LAYOUT_VIEW_TYPES;
+   }
+
+   private static int getEmbeddedViewType(int layoutResId) {
+      synchronized (embeddedViewTypes) {
+         int index = embeddedViewTypes.indexOfKey(layoutResId);
+         if (index >= 0) {
+            return embeddedViewTypes.valueAt(index);
+         }
+         if (embeddedViewTypes.size() >= MAX_EMBEDDED_VIEW_TYPES) {
+            // Out of reserved types, fall back to the shared one
+            return Layout.EMBED_INSIDE.ordinal();
+         }
+         int viewType = LAYOUT_VIEW_TYPES + embeddedViewTypes.size();
+         embeddedViewTypes.put(layoutResId, viewType);
+         return viewType;
+      }
+   }
+
+   /**
+    * Drops the images shown by a card view that is not visible. The {@code CardBuilder} that bound
+    * it drops its decoded drawables, where those can be reloaded, once no other view shows them.
+    * Does nothing for views that were not built by a {@code CardBuilder}.
+    */
+   static void releaseImages(View card) {
+      Object tag = card.getTag(R.id.card_view_holder);
+      if (!(tag instanceof ViewHolder)) {
+         return;
+      }
+      ViewHolder holder = (ViewHolder) tag;
+      if (holder.imagesReleased || holder.boundCard == null) {
+         return;
+      }
+      holder.imagesReleased = true;
+      clearImages(holder);
+      holder.boundCard.removeImageHolder();
+   }
+
+   /**
+    * Clears a card view that no longer shows its card, e.g. once it is put aside to be recycled.
+    * The {@code CardBuilder} that bound it releases its images once no view shows it any more.
+    * Does nothing for views that were not built by a {@code CardBuilder}.
+    */
+   static void unbindView(View card) {
+      Object tag = card.getTag(R.id.card_view_holder);
+      if (!(tag instanceof ViewHolder)) {
+         return;
+      }
+      ViewHolder holder = (ViewHolder) tag;
+      CardBuilder boundCard = holder.boundCard;
+      if (boundCard == null) {
+         return;
+      }
+      clearImages(holder);
+      boolean showedImages = !holder.imagesReleased;
+      holder.boundCard = null;
+      holder.boundSpec = null;
+      holder.imagesReleased = false;
+      if (showedImages) {
+         boundCard.removeImageHolder();
+      }
+   }
+
+   /** Clears the images of a card, cancelling the loads in flight for them. */
+   private static void clearImages(ViewHolder holder) {
+      for (CardImageTarget target : holder.imageTargets) {
+         clearImage(target);
+      }
+      clearImage(holder.iconTarget);
+      clearImage(holder.attributionIconTarget);
+   }
+
+   private static void clearImage(CardImageTarget target) {
+      if (target != null) {
+         CardImageLoader.cancel(target);
+         target.setImageDrawable(null);
+      }
+   }
+
+   private void removeImageHolder() {
+      imageHolderCount--;
+      if (imageHolderCount == 0) {
+         releaseCardImages();
+      }
+   }
+
+   private void releaseCardImages() {
+      if (mosaic != null) {
+         mosaic.release();
+      }
+      for (CardImage image : images) {
+         image.release();
+      }
+      if (icon != null) {
+         icon.release();
+      }
+      if (attributionIcon != null) {
+         attributionIcon.release();
+      }
+   }
+
+   /** Shows the images of a card view again after {@link #releaseImages(View)}, reloading them as needed. */
+   static void restoreImages(View card) {
+      Object tag = card.getTag(R.id.card_view_holder);
+      if (tag instanceof ViewHolder) {
+         ViewHolder holder = (ViewHolder) tag;
+         if (holder.imagesReleased && holder.boundCard != null) {
+            holder.boundCard.bindImages(holder);
+         }
+      }
+   }
+
+   /** Child views of an inflated card, resolved once and kept as a tag on the card's root view. */
+   private static final class ViewHolder {
+      final View root;
+      final Layout layout;
+      final int embeddedLayoutId;
+      final CardImageTarget[] imageTargets;
+      final LinearLayout imagesBottomRow;
+      final LinearLayout imagesRightColumn;
+      final CardImageTarget imageOverlay;
+      final CardImageTarget imageDim;
+      final CardImageTarget iconTarget;
+      final CardImageTarget stackIndicator;
+      final CardImageTarget attributionIconTarget;
+      final TextView textView;
+      final TextView headingView;
+      final TextView subheadingView;
+      final TextView footnoteView;
+      final TextView timestampView;
+      final ViewGroup embedContainer;
+      /** The card view when it is drawn in a single view, whose image slots stand in for the image views. */
+      final CardCanvasView canvasView;
+      /** Scratch bounds of the image views, reused on every bind. */
+      final Rect imageBounds = new Rect();
+      /** The card whose content the view currently shows. */
+      CardBuilder boundCard;
+      /** The {@link #version} of {@link #boundCard} when it was bound by {@link #getView(View, ViewGroup)}. */
+      int boundVersion;
+      /** The {@link #imageVersion} of {@link #boundCard} when it was bound. */
+      int boundImageVersion;
+      /** The spec of {@link #boundCard} when it was bound. */
+      CardSpec boundSpec;
+      /** Set while the view does not show the images of {@link #boundCard}, nor counts as one of their holders. */
+      boolean imagesReleased;
+
+      ViewHolder(View root, Layout layout, int embeddedLayoutId) {
+         this.root = root;
+         this.layout = layout;
+         this.embeddedLayoutId = embeddedLayoutId;
+         this.canvasView = root instanceof CardCanvasView ? (CardCanvasView) root : null;
+         this.imageTargets = new CardImageTarget[] {
+               findTarget(R.id.card_image_1),
+               findTarget(R.id.card_image_2),
+               findTarget(R.id.card_image_3),
+               findTarget(R.id.card_image_4),
+               findTarget(R.id.card_image_5)
+         };
+         this.imagesBottomRow = find(R.id.card_images_bottom_row);
+         this.imagesRightColumn = find(R.id.card_images_right_column);
+         this.imageOverlay = findTarget(R.id.card_image_overlay);
+         this.imageDim = findTarget(R.id.image_dim);
+         this.iconTarget = findTarget(R.id.card_icon);
+         this.stackIndicator = findTarget(R.id.card_stack_indicator);
+         this.attributionIconTarget = findTarget(R.id.card_attribution_icon);
+         this.textView = find(R.id.card_text);
+         this.headingView = find(R.id.card_heading);
+         this.subheadingView = find(R.id.card_subheading);
+         this.footnoteView = find(R.id.card_footnote);
+         this.timestampView = find(R.id.card_timestamp);
+         this.embedContainer = find(R.id.card_embed_container);
+      }
+
+      /** @return the child view with the given ID, or {@code null} in a single-view card, which has none */
+      private <T extends View> T find(int id) {
+         return canvasView == null ? root.<T>findViewById(id) : null;
+      }
+
+      /** @return the child view with the given ID as an image target, or the image slot standing in for it in a single-view card */
+      private CardImageTarget findTarget(int id) {
+         if (canvasView != null) {
+            return canvasView.findSlot(id);
+         }
+         View view = root.findViewById(id);
+         return view != null ? new ViewTarget(view) : null;
+      }
+
+      /**
+       * @return whether the view shows {@code card} as it is now, with its images, so that binding
+       *         it again would not change it: the card was not changed since it was bound, or was
+       *         only set to content with an equal spec, compared by hash code first
+       */
+      boolean isBoundTo(CardBuilder card) {
+         if (boundCard != card || imagesReleased) {
+            return false;
+         }
+         if (boundVersion == card.version) {
+            return true;
+         }
+         if (boundImageVersion != card.imageVersion) {
+            return false;
+         }
+         CardSpec spec = card.getSpec();
+         if (boundSpec.hashCode() != spec.hashCode() || !boundSpec.equals(spec)) {
+            return false;
+         }
+         boundVersion = card.version;
+         boundSpec = spec;
+         return true;
+      }
+
+      /** @return whether the view was built for the same layout, embedded layout and kind of view as the card */
+      boolean matches(CardBuilder card) {
+         return layout == card.layout && embeddedLayoutId == card.embeddedLayoutId
+               && (canvasView != null) == card.isCanvasRendered();
+      }
+   }
+
+   /** Shows images in a child view of a card, and keeps the load in flight for it as a tag of the view. */
+   private static final class ViewTarget implements CardImageTarget {
+      final View view;
+
+      ViewTarget(View view) {
+         this.view = view;
+      }
+
+      @Override
+      public void setImageDrawable(Drawable drawable) {
+         // The dim is a plain view, whose visibility alone is set
+         if (view instanceof ImageView) {
+            ((ImageView) view).setImageDrawable(drawable);
+         }
+      }
+
+      @Override
+      public void setVisible(boolean visible) {
+         CardBuilder.setVisible(view, visible);
+      }
+
+      @Override
+      public Object getRequest() {
+         return view.getTag(R.id.card_image_request);
+      }
+
+      @Override
+      public void setRequest(Object request) {
+         view.setTag(R.id.card_image_request, request);
+      }
    }
 
    public static enum Layout {
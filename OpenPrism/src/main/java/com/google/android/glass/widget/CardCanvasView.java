@@ -0,0 +1,774 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.style.TextAppearanceSpan;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.google.android.glass.R;
+
+/**
+ * Draws a whole card in a single view, laid out as the view hierarchy {@link CardViewFactory}
+ * builds for its layout: images, gradient, dim, stack indicator, icons, texts and footer. Measuring
+ * and laying out a card then touch one view instead of ten to twenty.
+ * <p>
+ * Images go through image slots, the {@link CardImageTarget}s standing in for the image views of a
+ * card: they hold the drawables {@link CardBuilder}, {@link CardImageLoader} and {@link CardMosaic}
+ * show, with this view as their callback, and this view draws them. Texts are laid out with {@link StaticLayout}s
+ * when the card is bound or resized, at the size {@link CardTextSizer} fits them to.
+ * <p>
+ * {@link CardBuilder.Layout#EMBED_INSIDE} cards, which host a layout of their own, cannot be drawn
+ * this way.
+ */
+final class CardCanvasView extends View {
+   private final CardBuilder.Layout layout;
+   private final DisplayMetrics metrics;
+
+   private final ImageSlot[] imageSlots = new ImageSlot[5];
+   private final ImageSlot overlay;
+   /** {@code null} for the layouts that do not dim their images. */
+   private final ImageSlot dim;
+   private final ImageSlot stackIndicator;
+   /** {@code null} for the layouts without an icon. */
+   private final ImageSlot icon;
+   /** {@code null} for the layouts without an attribution icon. */
+   private final ImageSlot attributionIcon;
+
+   private final TextPaint textPaint;
+   private final TextPaint headingPaint;
+   private final TextPaint subheadingPaint;
+   private final TextPaint footnotePaint;
+   private final TextPaint timestampPaint;
+   private final Paint iconBackgroundPaint = new Paint();
+   private final Paint avatarPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+   private final TextBlock headingBlock = new TextBlock();
+   private final TextBlock subheadingBlock = new TextBlock();
+   private final TextBlock textBlock = new TextBlock();
+   private final TextBlock footnoteBlock = new TextBlock();
+   private final TextBlock timestampBlock = new TextBlock();
+   private final Rect mosaicBounds = new Rect();
+   private final Rect overlayBounds = new Rect();
+   private final Rect stackIndicatorBounds = new Rect();
+   private final Rect iconBounds = new Rect();
+   private final Rect attributionIconBounds = new Rect();
+   /** Scratch bounds of the images, reused on every draw. */
+   private final Rect imageBounds = new Rect();
+   private final Matrix avatarMatrix = new Matrix();
+   private final Path avatarPath = new Path();
+   /** The bitmap {@link #avatarPaint} draws, so that its shader is only made again when it changes. */
+   private Bitmap avatarBitmap;
+
+   private CharSequence heading;
+   private CharSequence subheading;
+   private CharSequence text;
+   private CharSequence footnote;
+   private CharSequence timestamp;
+   /** The text being prepared by {@link CardTextPreparer}, until it is laid out at its fitted size. */
+   private Object textRequest;
+
+   CardCanvasView(Context context, CardBuilder.Layout layout) {
+      super(context);
+      this.layout = layout;
+      this.metrics = context.getResources().getDisplayMetrics();
+      setId(R.id.layout);
+      setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+      for (int i = 0; i < imageSlots.length; i++) {
+         imageSlots[i] = new ImageSlot();
+      }
+      overlay = new ImageSlot();
+      overlay.setImageDrawable(context.getResources().getDrawable(R.drawable.rect_gradient));
+      stackIndicator = new ImageSlot();
+      stackIndicator.setImageDrawable(context.getResources().getDrawable(R.drawable.stack_indicator));
+      boolean dims = layout == CardBuilder.Layout.ALERT || layout == CardBuilder.Layout.AUTHOR
+            || layout == CardBuilder.Layout.MENU || layout == CardBuilder.Layout.TEXT
+            || layout == CardBuilder.Layout.TEXT_FIXED;
+      if (dims) {
+         dim = new ImageSlot();
+         dim.setImageDrawable(new ColorDrawable(CardStyle.DIM_COLOR));
+      } else {
+         dim = null;
+      }
+      icon = CardImageSlots.getIconSize(layout, metrics) > 0 ? new ImageSlot() : null;
+      attributionIcon = layout != CardBuilder.Layout.MENU ? new ImageSlot() : null;
+      iconBackgroundPaint.setColor(CardStyle.ICON_BACKGROUND_COLOR);
+
+      int smallAppearance = getSmallTextAppearance(context);
+      textPaint = createTextPaint();
+      switch (layout) {
+         case ALERT:
+            setTextStyle(textPaint, CardStyle.TITLE_FONT, CardStyle.ALERT_TEXT_SIZE, Color.WHITE);
+            break;
+         case MENU:
+            applyTextAppearance(context, smallAppearance, textPaint);
+            setTextStyle(textPaint, CardStyle.TITLE_FONT, CardStyle.TITLE_TEXT_SIZE, textPaint.getColor());
+            break;
+         case TITLE:
+            setTextStyle(textPaint, CardStyle.TITLE_FONT, CardStyle.TITLE_TEXT_SIZE, Color.WHITE);
+            setShadow(textPaint);
+            break;
+         default:
+            setTextStyle(textPaint, CardStyle.TEXT_FONT, CardTextSizer.MIN_TEXT_SIZE_SP, Color.WHITE);
+            if (layout == CardBuilder.Layout.CAPTION) {
+               setShadow(textPaint);
+            }
+            break;
+      }
+      headingPaint = createTextPaint();
+      applyTextAppearance(context, smallAppearance, headingPaint);
+      headingPaint.setColor(Color.WHITE);
+      subheadingPaint = createTextPaint();
+      applyTextAppearance(context, smallAppearance, subheadingPaint);
+      subheadingPaint.setColor(context.getResources().getColor(android.R.color.darker_gray));
+      footnotePaint = createTextPaint();
+      if (layout == CardBuilder.Layout.ALERT) {
+         applyTextAppearance(context, androidx.appcompat.R.style.TextAppearance_AppCompat_Small, footnotePaint);
+      } else {
+         applyTextAppearance(context, smallAppearance, footnotePaint);
+      }
+      footnotePaint.setTypeface(Typeface.create(CardStyle.FOOTNOTE_FONT, Typeface.NORMAL));
+      if (layout != CardBuilder.Layout.ALERT && layout != CardBuilder.Layout.MENU) {
+         footnotePaint.setColor(Color.WHITE);
+      }
+      timestampPaint = createTextPaint();
+      applyTextAppearance(context, smallAppearance, timestampPaint);
+      timestampPaint.setColor(Color.WHITE);
+   }
+
+   /**
+    * @return the slot standing in for the image view with the given ID in the views built by
+    *         {@link CardViewFactory}, or {@code null} if there is none in this layout
+    */
+   CardImageTarget findSlot(int id) {
+      if (id == R.id.card_image_1) {
+         return imageSlots[0];
+      } else if (id == R.id.card_image_2) {
+         return imageSlots[1];
+      } else if (id == R.id.card_image_3) {
+         return imageSlots[2];
+      } else if (id == R.id.card_image_4) {
+         return imageSlots[3];
+      } else if (id == R.id.card_image_5) {
+         return imageSlots[4];
+      } else if (id == R.id.card_image_overlay) {
+         return overlay;
+      } else if (id == R.id.image_dim) {
+         return dim;
+      } else if (id == R.id.card_stack_indicator) {
+         return stackIndicator;
+      } else if (id == R.id.card_icon) {
+         return icon;
+      } else if (id == R.id.card_attribution_icon) {
+         return attributionIcon;
+      }
+      return null;
+   }
+
+   /**
+    * Sets {@code outBounds} to where this card draws what the view with the given ID shows in the
+    * views built by {@link CardViewFactory}: the bounds of its text, or of its image within the
+    * padding of the image view. Used by {@code CardCanvasViewTest} to compare the two.
+    * @return whether this card draws it
+    */
+   boolean getBounds(int id, Rect outBounds) {
+      TextBlock block = null;
+      if (id == R.id.card_heading) {
+         block = headingBlock;
+      } else if (id == R.id.card_subheading) {
+         block = subheadingBlock;
+      } else if (id == R.id.card_text) {
+         block = textBlock;
+      } else if (id == R.id.card_footnote) {
+         block = footnoteBlock;
+      } else if (id == R.id.card_timestamp) {
+         block = timestampBlock;
+      }
+      if (block != null) {
+         outBounds.set(block.bounds);
+         return block.layout != null;
+      }
+      CardImageTarget slot = findSlot(id);
+      if (!isSlotVisible((ImageSlot) slot)) {
+         return false;
+      }
+      for (int i = 0; i < imageSlots.length; i++) {
+         if (slot == imageSlots[i]) {
+            getImageBounds(i, getImageCount(), outBounds);
+            return true;
+         }
+      }
+      if (slot == overlay) {
+         outBounds.set(overlayBounds);
+      } else if (slot == dim) {
+         outBounds.set(mosaicBounds);
+      } else if (slot == stackIndicator) {
+         outBounds.set(stackIndicatorBounds);
+      } else if (slot == icon) {
+         outBounds.set(iconBounds);
+      } else {
+         outBounds.set(attributionIconBounds);
+      }
+      return true;
+   }
+
+   /**
+    * Sets the texts of the card, once its image slots are bound, and lays them out. The main text
+    * of the layouts that fit it is measured on the spot if its size is not cached; when
+    * {@link CardTextPreparer#setDeferSizing(boolean) sizing is deferred}, it is drawn at the smallest
+    * size until it is measured in the background instead.
+    */
+   void bind(CharSequence heading, CharSequence subheading, CharSequence text, CharSequence footnote,
+         CharSequence timestamp) {
+      this.heading = layout == CardBuilder.Layout.AUTHOR ? heading : null;
+      this.subheading = layout == CardBuilder.Layout.AUTHOR ? subheading : null;
+      this.text = text;
+      this.footnote = footnote;
+      this.timestamp = layout != CardBuilder.Layout.ALERT && layout != CardBuilder.Layout.MENU ? timestamp : null;
+      setContentDescription(text != null ? text : heading);
+      textRequest = null;
+      Point cardSize = new Point();
+      CardTextSizer.getCardSize(this, metrics, cardSize);
+      if (text != null && !CardTextPreparer.isSizingDeferred()) {
+         CardTextSizer.getTextSize(text, layout, cardSize.x, cardSize.y, metrics);
+      } else if (text != null && CardTextSizer.getCachedTextSize(text, layout, cardSize.x, cardSize.y, metrics) == 0) {
+         final Object request = new Object();
+         textRequest = request;
+         CardTextPreparer.prepare(getContext(), text, layout, cardSize.x, cardSize.y, new Runnable() {
+            @Override
+            public void run() {
+               // Unless the view was bound to another text in the meantime
+               if (textRequest == request) {
+                  textRequest = null;
+                  updateLayout();
+                  invalidate();
+               }
+            }
+         });
+      }
+      updateLayout();
+      invalidate();
+   }
+
+   @Override
+   protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+      super.onSizeChanged(width, height, oldWidth, oldHeight);
+      updateLayout();
+   }
+
+   /** Lays out the texts and images of the card for the current size of the view. */
+   private void updateLayout() {
+      int width = getWidth();
+      int height = getHeight();
+      headingBlock.clear();
+      subheadingBlock.clear();
+      textBlock.clear();
+      footnoteBlock.clear();
+      timestampBlock.clear();
+      if (width == 0 || height == 0) {
+         return;
+      }
+      if (text != null && CardTextSizer.getMaxTextSize(layout) > 0) {
+         // Measured on the spot when the card was bound at another size, unless it is measured in the background
+         int textSizeSp = textRequest == null ? CardTextSizer.getTextSize(text, layout, width, height, metrics)
+               : CardTextSizer.getCachedTextSize(text, layout, width, height, metrics);
+         textPaint.setTextSize(sp(textSizeSp > 0 ? textSizeSp : CardTextSizer.MIN_TEXT_SIZE_SP));
+      }
+      mosaicBounds.set(0, 0, CardImageSlots.getMosaicWidth(layout, width), height);
+      overlayBounds.set(mosaicBounds.left, mosaicBounds.bottom - dp(CardStyle.OVERLAY_HEIGHT), mosaicBounds.right, mosaicBounds.bottom);
+      stackIndicatorBounds.set(width - dp(CardStyle.STACK_INDICATOR_SIZE), 0, width, dp(CardStyle.STACK_INDICATOR_SIZE));
+      switch (layout) {
+         case ALERT:
+            layoutAlert(width, height);
+            break;
+         case AUTHOR:
+            layoutAuthor(width, height);
+            layoutFooter(0, width, height);
+            break;
+         case CAPTION:
+            layoutCaption(width, height);
+            layoutFooter(0, width, height);
+            break;
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            int iconSize = dp(CardStyle.COLUMNS_ICON_SIZE);
+            int centerX = mosaicBounds.centerX();
+            iconBounds.set(centerX - iconSize / 2, height / 2 - iconSize / 2, centerX + iconSize / 2, height / 2 + iconSize / 2);
+            layoutText(mosaicBounds.right + dp(CardStyle.MARGIN_LEFT), width - dp(CardStyle.MARGIN_RIGHT), height);
+            layoutFooter(mosaicBounds.right, width, height);
+            break;
+         case MENU:
+            layoutMenu(width, height);
+            break;
+         case TITLE:
+            layoutTitle(width, height);
+            layoutFooter(0, width, height);
+            break;
+         case TEXT:
+         case TEXT_FIXED:
+         default:
+            layoutText(dp(CardStyle.MARGIN_LEFT), width - dp(CardStyle.MARGIN_RIGHT), height);
+            layoutFooter(0, width, height);
+            break;
+      }
+   }
+
+   /** An icon with a message and footnote underneath, centered, and the attribution icon in the corner. */
+   private void layoutAlert(int width, int height) {
+      int maxWidth = Math.max(0, width - 2 * dp(CardStyle.CENTERED_PADDING));
+      int centerX = width / 2;
+      StaticLayout textLayout = text != null ? createLayout(text, textPaint, getDesiredWidth(text, textPaint, maxWidth), 1, Layout.Alignment.ALIGN_CENTER) : null;
+      CharSequence footnoteText = footnote != null ? footnote : "";
+      StaticLayout footnoteLayout = createLayout(footnoteText, footnotePaint, getDesiredWidth(footnoteText, footnotePaint, maxWidth), 1, Layout.Alignment.ALIGN_CENTER);
+      int iconSize = isSlotVisible(icon) ? dp(CardStyle.ALERT_ICON_SIZE) : 0;
+      int footnoteHeight = dp(CardStyle.ALERT_FOOTNOTE_HEIGHT);
+      int textHeight = textLayout != null ? textLayout.getHeight() : 0;
+      int y = (height - iconSize - textHeight - footnoteHeight) / 2;
+      // The icon is drawn within its padding
+      int iconPadding = dp(CardStyle.ALERT_ICON_PADDING);
+      iconBounds.set(centerX - iconSize / 2 + iconPadding, y + iconPadding, centerX + iconSize / 2 - iconPadding, y + iconSize - iconPadding);
+      y += iconSize;
+      if (textLayout != null) {
+         textBlock.set(textLayout, centerX - textLayout.getWidth() / 2, y, centerX + textLayout.getWidth() / 2, y + textHeight);
+         y += textHeight;
+      }
+      footnoteBlock.set(footnoteLayout, centerX - footnoteLayout.getWidth() / 2, y, centerX + footnoteLayout.getWidth() / 2, y + footnoteHeight);
+      int attributionIconSize = dp(CardStyle.ATTRIBUTION_ICON_SIZE);
+      int attributionRight = width - dp(CardStyle.MARGIN_RIGHT);
+      int attributionBottom = height - dp(CardStyle.FOOTER_MARGIN_BOTTOM);
+      attributionIconBounds.set(attributionRight - attributionIconSize, attributionBottom - attributionIconSize, attributionRight, attributionBottom);
+   }
+
+   /** The avatar, with the heading and subheading next to it, and the text underneath. */
+   private void layoutAuthor(int width, int height) {
+      int left = dp(CardStyle.MARGIN_LEFT);
+      int right = width - dp(CardStyle.MARGIN_RIGHT);
+      int top = dp(CardStyle.MARGIN_TOP);
+      int bottom = height - dp(CardStyle.MARGIN_BOTTOM);
+      iconBounds.set(left, top, left + dp(CardStyle.AVATAR_SIZE), top + dp(CardStyle.AVATAR_SIZE));
+      int headingLeft = isSlotVisible(icon) ? iconBounds.right + dp(CardStyle.AVATAR_MARGIN) : left;
+      int y = top;
+      if (heading != null) {
+         StaticLayout headingLayout = createLayout(heading, headingPaint, right - headingLeft, Integer.MAX_VALUE, Layout.Alignment.ALIGN_NORMAL);
+         int headingHeight = Math.max(dp(CardStyle.HEADING_MIN_HEIGHT), headingLayout.getHeight());
+         headingBlock.set(headingLayout, headingLeft, y, right, y + headingHeight);
+         y += headingHeight;
+      }
+      if (subheading != null) {
+         StaticLayout subheadingLayout = createLayout(subheading, subheadingPaint, right - headingLeft, Integer.MAX_VALUE, Layout.Alignment.ALIGN_NORMAL);
+         int subheadingHeight = Math.max(dp(CardStyle.HEADING_MIN_HEIGHT), subheadingLayout.getHeight());
+         subheadingBlock.set(subheadingLayout, headingLeft, y, right, y + subheadingHeight);
+         y += subheadingHeight;
+      }
+      if (text != null) {
+         textBlock.set(createLayout(text, textPaint, right - left, Integer.MAX_VALUE, Layout.Alignment.ALIGN_NORMAL), left, y, right, bottom);
+      }
+   }
+
+   /** The avatar and the text next to it, along the bottom of the card. */
+   private void layoutCaption(int width, int height) {
+      int left = dp(CardStyle.MARGIN_LEFT);
+      int right = width - dp(CardStyle.MARGIN_RIGHT);
+      int top = dp(CardStyle.MARGIN_TOP);
+      int bottom = height - dp(CardStyle.MARGIN_BOTTOM);
+      iconBounds.set(left, bottom - dp(CardStyle.AVATAR_SIZE), left + dp(CardStyle.AVATAR_SIZE), bottom);
+      int textLeft = isSlotVisible(icon) ? iconBounds.right + dp(CardStyle.AVATAR_MARGIN) : left;
+      if (text != null) {
+         StaticLayout textLayout = createLayout(text, textPaint, right - textLeft, Integer.MAX_VALUE, Layout.Alignment.ALIGN_NORMAL);
+         textBlock.set(textLayout, textLeft, Math.max(top, bottom - textLayout.getHeight()), right, bottom);
+      }
+   }
+
+   /** The icon and text side by side, centered, and the footnote centered along the bottom. */
+   private void layoutMenu(int width, int height) {
+      int iconSize = isSlotVisible(icon) ? dp(CardStyle.TITLE_ICON_SIZE) : 0;
+      int maxTextWidth = Math.max(0, width - 2 * dp(CardStyle.CENTERED_PADDING) - iconSize);
+      StaticLayout textLayout = text != null ? createLayout(text, textPaint, getDesiredWidth(text, textPaint, maxTextWidth), 1, Layout.Alignment.ALIGN_NORMAL) : null;
+      int textWidth = textLayout != null ? textLayout.getWidth() : 0;
+      int textHeight = textLayout != null ? textLayout.getHeight() : 0;
+      int rowHeight = Math.max(iconSize, textHeight);
+      int left = (width - iconSize - textWidth) / 2;
+      int top = (height - rowHeight) / 2;
+      iconBounds.set(left, top + (rowHeight - iconSize) / 2, left + iconSize, top + (rowHeight + iconSize) / 2);
+      if (textLayout != null) {
+         // As tall as the row, like its text view, with the text centered
+         textBlock.set(textLayout, left + iconSize, top, left + iconSize + textWidth, top + rowHeight, Gravity.CENTER_VERTICAL);
+      }
+      int footnoteLeft = dp(CardStyle.MARGIN_LEFT);
+      int footnoteRight = width - dp(CardStyle.MARGIN_RIGHT);
+      StaticLayout footnoteLayout = createLayout(footnote != null ? footnote : "", footnotePaint, footnoteRight - footnoteLeft, 1, Layout.Alignment.ALIGN_CENTER);
+      int footnoteBottom = height - dp(CardStyle.FOOTER_MARGIN_BOTTOM);
+      footnoteBlock.set(footnoteLayout, footnoteLeft, footnoteBottom - footnoteLayout.getHeight(), footnoteRight, footnoteBottom);
+   }
+
+   /** The icon and text side by side, centered, along the bottom of the content area. */
+   private void layoutTitle(int width, int height) {
+      int top = dp(CardStyle.MARGIN_TOP);
+      int bottom = height - dp(CardStyle.MARGIN_BOTTOM);
+      int iconSize = isSlotVisible(icon) ? dp(CardStyle.TITLE_ICON_SIZE) : 0;
+      StaticLayout textLayout = text != null ? createLayout(text, textPaint, getDesiredWidth(text, textPaint, Math.max(0, width - iconSize)), 1, Layout.Alignment.ALIGN_NORMAL) : null;
+      int textWidth = textLayout != null ? textLayout.getWidth() : 0;
+      int left = (width - iconSize - textWidth) / 2;
+      iconBounds.set(left, bottom - iconSize, left + iconSize, bottom);
+      if (textLayout != null) {
+         // As tall as the content area, like its text view, with the text along the bottom
+         textBlock.set(textLayout, left + iconSize, top, left + iconSize + textWidth, bottom, Gravity.BOTTOM);
+      }
+   }
+
+   /** The main text, filling the content area between {@code left} and {@code right}. */
+   private void layoutText(int left, int right, int height) {
+      if (text != null) {
+         textBlock.set(createLayout(text, textPaint, right - left, Integer.MAX_VALUE, Layout.Alignment.ALIGN_NORMAL), left, dp(CardStyle.MARGIN_TOP), right,
+               height - dp(CardStyle.MARGIN_BOTTOM));
+      }
+   }
+
+   /** The footnote, timestamp and attribution icon along the bottom of the card, between {@code left} and {@code right}. */
+   private void layoutFooter(int left, int right, int height) {
+      int footerLeft = left + dp(CardStyle.MARGIN_LEFT);
+      int footerRight = right - dp(CardStyle.MARGIN_RIGHT);
+      int bottom = height - dp(CardStyle.FOOTER_MARGIN_BOTTOM);
+      int end = footerRight - (isSlotVisible(attributionIcon) ? dp(CardStyle.ATTRIBUTION_ICON_SIZE) : 0);
+      StaticLayout timestampLayout = null;
+      int footnoteRight = end;
+      if (timestamp != null) {
+         int maxWidth = Math.max(0, end - footerLeft - dp(CardStyle.TIMESTAMP_MARGIN));
+         timestampLayout = createLayout(timestamp, timestampPaint, getDesiredWidth(timestamp, timestampPaint, maxWidth), 1, Layout.Alignment.ALIGN_NORMAL);
+         footnoteRight = end - timestampLayout.getWidth() - dp(CardStyle.TIMESTAMP_MARGIN);
+      }
+      StaticLayout footnoteLayout = createLayout(footnote != null ? footnote : "", footnotePaint, footnoteRight - footerLeft, 1, Layout.Alignment.ALIGN_NORMAL);
+      int footerHeight = Math.max(footnoteLayout.getHeight(), timestampLayout != null ? timestampLayout.getHeight() : 0);
+      int top = bottom - footerHeight;
+      footnoteBlock.set(footnoteLayout, footerLeft, top, footnoteRight, top + footnoteLayout.getHeight());
+      if (timestampLayout != null) {
+         timestampBlock.set(timestampLayout, end - timestampLayout.getWidth(), top, end, top + timestampLayout.getHeight());
+      }
+      attributionIconBounds.set(end, top, footerRight, bottom);
+   }
+
+   @Override
+   protected void onDraw(Canvas canvas) {
+      if (layout == CardBuilder.Layout.COLUMNS || layout == CardBuilder.Layout.COLUMNS_FIXED) {
+         // The text column leaves the stack indicator uncovered
+         drawSlot(canvas, stackIndicator, stackIndicatorBounds, false);
+         canvas.drawRect(mosaicBounds, iconBackgroundPaint);
+         drawSlot(canvas, icon, iconBounds, false);
+         drawImages(canvas);
+         drawSlot(canvas, overlay, overlayBounds, false);
+      } else {
+         drawImages(canvas);
+         drawSlot(canvas, overlay, overlayBounds, false);
+         drawSlot(canvas, dim, mosaicBounds, false);
+         drawSlot(canvas, stackIndicator, stackIndicatorBounds, false);
+         if (layout == CardBuilder.Layout.AUTHOR || layout == CardBuilder.Layout.CAPTION) {
+            drawAvatar(canvas);
+         } else {
+            drawSlot(canvas, icon, iconBounds, false);
+         }
+      }
+      headingBlock.draw(canvas);
+      subheadingBlock.draw(canvas);
+      textBlock.draw(canvas);
+      footnoteBlock.draw(canvas);
+      timestampBlock.draw(canvas);
+      drawSlot(canvas, attributionIcon, attributionIconBounds, false);
+   }
+
+   /** Draws the images shown in the image slots, which are the first ones, in their place in the mosaic. */
+   private void drawImages(Canvas canvas) {
+      int count = getImageCount();
+      for (int i = 0; i < count; i++) {
+         getImageBounds(i, count, imageBounds);
+         drawSlot(canvas, imageSlots[i], imageBounds, true);
+      }
+   }
+
+   /** @return the number of images shown, in the first image slots */
+   private int getImageCount() {
+      int count = 0;
+      while (count < imageSlots.length && isSlotVisible(imageSlots[count])) {
+         count++;
+      }
+      return count;
+   }
+
+   /** Sets {@code outBounds} to the bounds of image {@code index} of {@code count} within the card. */
+   private void getImageBounds(int index, int count, Rect outBounds) {
+      CardImageSlots.getImageBounds(layout, index, count, mosaicBounds.width(), mosaicBounds.height(), outBounds);
+      outBounds.offset(mosaicBounds.left, mosaicBounds.top);
+   }
+
+   /** Draws the icon cropped to a circle, as {@link de.hdodenhof.circleimageview.CircleImageView} does. */
+   private void drawAvatar(Canvas canvas) {
+      Drawable drawable = isSlotVisible(icon) ? icon.drawable : null;
+      if (drawable == null) {
+         // Lets go of the bitmap, which goes back to the image cache once released
+         avatarBitmap = null;
+         avatarPaint.setShader(null);
+         return;
+      }
+      Bitmap bitmap = drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+      if (bitmap == null) {
+         avatarPath.rewind();
+         avatarPath.addCircle(iconBounds.exactCenterX(), iconBounds.exactCenterY(), iconBounds.width() / 2f, Path.Direction.CW);
+         canvas.save();
+         canvas.clipPath(avatarPath);
+         drawSlot(canvas, icon, iconBounds, true);
+         canvas.restore();
+         return;
+      }
+      if (bitmap != avatarBitmap) {
+         avatarBitmap = bitmap;
+         avatarPaint.setShader(new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+      }
+      float scale = Math.max(iconBounds.width() / (float) bitmap.getWidth(), iconBounds.height() / (float) bitmap.getHeight());
+      avatarMatrix.setScale(scale, scale);
+      avatarMatrix.postTranslate(iconBounds.left + (iconBounds.width() - bitmap.getWidth() * scale) / 2,
+            iconBounds.top + (iconBounds.height() - bitmap.getHeight() * scale) / 2);
+      avatarPaint.getShader().setLocalMatrix(avatarMatrix);
+      canvas.drawCircle(iconBounds.exactCenterX(), iconBounds.exactCenterY(), iconBounds.width() / 2f, avatarPaint);
+   }
+
+   /**
+    * Draws what a slot shows in the given bounds, scaled as {@link ImageView.ScaleType#CENTER_CROP}
+    * if {@code crop} is set and as {@link ImageView.ScaleType#FIT_CENTER} otherwise. Drawables
+    * without an intrinsic size fill the bounds.
+    */
+   private static void drawSlot(Canvas canvas, ImageSlot slot, Rect bounds, boolean crop) {
+      Drawable drawable = isSlotVisible(slot) ? slot.drawable : null;
+      if (drawable == null || bounds.isEmpty()) {
+         return;
+      }
+      int drawableWidth = drawable.getIntrinsicWidth();
+      int drawableHeight = drawable.getIntrinsicHeight();
+      canvas.save();
+      canvas.clipRect(bounds);
+      if (drawableWidth <= 0 || drawableHeight <= 0) {
+         drawable.setBounds(bounds);
+      } else {
+         float scaleX = bounds.width() / (float) drawableWidth;
+         float scaleY = bounds.height() / (float) drawableHeight;
+         float scale = crop ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+         // Scaled by the canvas, as image views do, since the drawable may be shared by other views
+         canvas.translate(bounds.left + (bounds.width() - drawableWidth * scale) / 2,
+               bounds.top + (bounds.height() - drawableHeight * scale) / 2);
+         canvas.scale(scale, scale);
+         drawable.setBounds(0, 0, drawableWidth, drawableHeight);
+      }
+      drawable.draw(canvas);
+      canvas.restore();
+   }
+
+   /** @return whether a slot takes up room in the card, as its image view would, whether it shows a drawable or not */
+   private static boolean isSlotVisible(ImageSlot slot) {
+      return slot != null && slot.visible;
+   }
+
+   @Override
+   protected boolean verifyDrawable(Drawable who) {
+      return super.verifyDrawable(who) || isShownInSlot(who, null);
+   }
+
+   /** Redraws the whole card, as the drawables of the slots are placed by scaling the canvas rather than by their bounds. */
+   @Override
+   public void invalidateDrawable(Drawable drawable) {
+      if (verifyDrawable(drawable)) {
+         invalidate();
+      } else {
+         super.invalidateDrawable(drawable);
+      }
+   }
+
+   /** @return whether a slot other than {@code except} shows the drawable */
+   private boolean isShownInSlot(Drawable drawable, ImageSlot except) {
+      for (ImageSlot slot : imageSlots) {
+         if (slot != except && slot.drawable == drawable) {
+            return true;
+         }
+      }
+      ImageSlot[] others = {overlay, dim, stackIndicator, icon, attributionIcon};
+      for (ImageSlot slot : others) {
+         if (slot != null && slot != except && slot.drawable == drawable) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /** @return the width of a single line of text, no wider than {@code maxWidth} */
+   private static int getDesiredWidth(CharSequence text, TextPaint paint, int maxWidth) {
+      return Math.min(maxWidth, (int) Math.ceil(Layout.getDesiredWidth(text, paint)));
+   }
+
+   /** Lays out a text as a text view would, ellipsized at the end when limited to a single line. */
+   private static StaticLayout createLayout(CharSequence text, TextPaint paint, int width, int maxLines, Layout.Alignment alignment) {
+      width = Math.max(0, width);
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+         return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+               .setAlignment(alignment)
+               .setMaxLines(maxLines)
+               .setEllipsize(TextUtils.TruncateAt.END)
+               .build();
+      }
+      if (maxLines == 1) {
+         text = TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END);
+      }
+      return new StaticLayout(text, paint, width, alignment, 1, 0, true);
+   }
+
+   private TextPaint createTextPaint() {
+      TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+      paint.density = metrics.density;
+      return paint;
+   }
+
+   private void setTextStyle(TextPaint paint, String fontFamily, int textSizeSp, int color) {
+      paint.setTypeface(Typeface.create(fontFamily, Typeface.NORMAL));
+      paint.setTextSize(sp(textSizeSp));
+      paint.setColor(color);
+   }
+
+   private void setShadow(TextPaint paint) {
+      paint.setShadowLayer(1, 0, 1, getResources().getColor(android.R.color.background_dark));
+   }
+
+   /** @return the small text appearance of the theme, which text views use by default */
+   private static int getSmallTextAppearance(Context context) {
+      TypedValue value = new TypedValue();
+      if (context.getTheme().resolveAttribute(android.R.attr.textAppearanceSmall, value, true)) {
+         return value.resourceId;
+      }
+      return android.R.style.TextAppearance_Small;
+   }
+
+   private static void applyTextAppearance(Context context, int appearance, TextPaint paint) {
+      TextAppearanceSpan span = new TextAppearanceSpan(context, appearance);
+      span.updateMeasureState(paint);
+      ColorStateList color = span.getTextColor();
+      if (color != null) {
+         paint.setColor(color.getDefaultColor());
+      }
+   }
+
+   private float sp(int value) {
+      return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value, metrics);
+   }
+
+   private int dp(int value) {
+      return CardImageSlots.dp(metrics, value);
+   }
+
+   /** A laid out text and the bounds it is drawn in, clipped to them as a text view would be. */
+   private static final class TextBlock {
+      final Rect bounds = new Rect();
+      StaticLayout layout;
+      /** Distance from the top of the bounds to the top of the text. */
+      int offset;
+
+      void set(StaticLayout layout, int left, int top, int right, int bottom) {
+         this.layout = layout;
+         bounds.set(left, top, right, bottom);
+         offset = 0;
+      }
+
+      /**
+       * Same as {@link #set(StaticLayout, int, int, int, int)}, with the text placed within the
+       * bounds as a text view with the given vertical gravity would place it, when it fits.
+       */
+      void set(StaticLayout layout, int left, int top, int right, int bottom, int verticalGravity) {
+         set(layout, left, top, right, bottom);
+         int space = Math.max(0, bounds.height() - layout.getHeight());
+         if (verticalGravity == Gravity.BOTTOM) {
+            offset = space;
+         } else if (verticalGravity == Gravity.CENTER_VERTICAL) {
+            offset = space / 2;
+         }
+      }
+
+      void clear() {
+         layout = null;
+      }
+
+      void draw(Canvas canvas) {
+         if (layout == null || bounds.isEmpty()) {
+            return;
+         }
+         canvas.save();
+         canvas.clipRect(bounds);
+         canvas.translate(bounds.left, bounds.top + offset);
+         layout.draw(canvas);
+         canvas.restore();
+      }
+   }
+
+   /**
+    * Stands in for an image view of the card: holds the drawable shown in it, with the card as its
+    * callback, and has the card draw it instead.
+    */
+   private final class ImageSlot implements CardImageTarget {
+      Drawable drawable;
+      boolean visible = true;
+      private Object request;
+
+      @Override
+      public void setImageDrawable(Drawable drawable) {
+         if (this.drawable == drawable) {
+            return;
+         }
+         Drawable previous = this.drawable;
+         this.drawable = drawable;
+         // Drawables may be shared with other views, which take over the callback as image views do
+         if (previous != null && previous.getCallback() == CardCanvasView.this && !isShownInSlot(previous, this)) {
+            previous.setCallback(null);
+            unscheduleDrawable(previous);
+         }
+         if (drawable != null) {
+            drawable.setCallback(CardCanvasView.this);
+         }
+         invalidate();
+      }
+
+      @Override
+      public void setVisible(boolean visible) {
+         if (this.visible != visible) {
+            this.visible = visible;
+            invalidate();
+         }
+      }
+
+      @Override
+      public Object getRequest() {
+         return request;
+      }
+
+      @Override
+      public void setRequest(Object request) {
+         this.request = request;
+      }
+   }
+}
@@ -0,0 +1,121 @@
+package com.google.android.glass.widget;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Display lists of the cards a {@link CardScrollView} shows next to the selected one, each
+ * recorded once into its own {@link RenderNode} and replayed as the cards scroll, until the content
+ * of the card changes.
+ * <p>
+ * {@link RenderNode} is only public from API 29 on: the scroller creates the cache, and so loads
+ * this class, only on API 29 and up.
+ */
+final class CardDisplayListCache {
+   /** The cards that have a kept display list, in the order they were first recorded. */
+   private final ArrayList<Entry> kept = new ArrayList<>();
+   int hitCount = 0;
+   int missCount = 0;
+
+   /**
+    * Draws {@code card} by replaying its kept display list, recording it first if the card has none
+    * yet, was invalidated since, or changed size.
+    * @return whether the card was drawn, which it is not on a canvas that cannot replay display lists
+    */
+   boolean draw(Canvas canvas, View card) {
+      if (!(canvas instanceof RecordingCanvas)) {
+         return false;
+      }
+      Entry entry = find(card);
+      if (entry == null) {
+         entry = new Entry(card);
+         kept.add(entry);
+      }
+      RenderNode node = entry.node;
+      node.setPosition(card.getLeft(), card.getTop(), card.getRight(), card.getBottom());
+      if (entry.dirty || !node.hasDisplayList()) {
+         RecordingCanvas recordingCanvas = node.beginRecording(card.getWidth(), card.getHeight());
+         try {
+            card.draw(recordingCanvas);
+         } finally {
+            node.endRecording();
+         }
+         entry.dirty = false;
+         missCount++;
+      } else {
+         hitCount++;
+      }
+      ((RecordingCanvas) canvas).drawRenderNode(node);
+      return true;
+   }
+
+   /** Marks the display list of {@code card}, if any, to be recorded again on its next draw. */
+   void invalidate(View card) {
+      Entry entry = find(card);
+      if (entry != null) {
+         entry.dirty = true;
+      }
+   }
+
+   /** Drops the display list of {@code card}, if any. */
+   void discard(View card) {
+      for (int i = kept.size() - 1; i >= 0; i--) {
+         Entry entry = kept.get(i);
+         if (entry.card == card) {
+            kept.remove(i);
+            entry.node.discardDisplayList();
+         }
+      }
+   }
+
+   void discardAll() {
+      for (int i = 0; i < kept.size(); i++) {
+         kept.get(i).node.discardDisplayList();
+      }
+      kept.clear();
+   }
+
+   /** @return how many cards have a recorded display list */
+   int size() {
+      int count = 0;
+      for (int i = 0; i < kept.size(); i++) {
+         if (kept.get(i).node.hasDisplayList()) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   /** @return the approximate memory used by the recorded display lists, in bytes */
+   long getMemoryUsage() {
+      long bytes = 0;
+      for (int i = 0; i < kept.size(); i++) {
+         bytes += kept.get(i).node.computeApproximateMemoryUsage();
+      }
+      return bytes;
+   }
+
+   private Entry find(View card) {
+      for (int i = 0; i < kept.size(); i++) {
+         if (kept.get(i).card == card) {
+            return kept.get(i);
+         }
+      }
+      return null;
+   }
+
+   private static final class Entry {
+      final View card;
+      final RenderNode node = new RenderNode("Card");
+      /** Whether the content of the card changed since it was recorded. */
+      boolean dirty = true;
+
+      Entry(View card) {
+         this.card = card;
+      }
+   }
+}
@@ -0,0 +1,165 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+
+/**
+ * An image added to a {@link CardBuilder}, described by where it comes from: a drawable resource, a
+ * file, a content {@link android.net.Uri}, a {@link Bitmap} or a {@link Drawable}. Nothing is
+ * loaded when the image is added; the image is resolved when its card is bound to a view, and
+ * released when the card no longer is.
+ * <p>
+ * Resources, files and Uris are decoded through {@link CardImageCache} at the size of their view,
+ * files and Uris off the main thread by {@link CardImageLoader}, and can be loaded again after a
+ * release; bitmaps and drawables are kept as they cannot be reloaded, only the drawable wrapping a
+ * bitmap is dropped.
+ */
+final class CardImage {
+   /** Where the image is decoded from, or {@code null} for bitmaps and drawables. */
+   private final CardImageCache.Source source;
+   private final Bitmap bitmap;
+   private final Drawable givenDrawable;
+   private Drawable drawable;
+   /** The bitmap of {@link #drawable} when it comes from {@link CardImageCache}. */
+   private Bitmap cachedBitmap;
+   private int width;
+   private int height;
+
+   private CardImage(CardImageCache.Source source, Bitmap bitmap, Drawable drawable) {
+      this.source = source;
+      this.bitmap = bitmap;
+      this.givenDrawable = drawable;
+   }
+
+   static CardImage fromSource(CardImageCache.Source source) {
+      return new CardImage(source, null, null);
+   }
+
+   static CardImage fromBitmap(Bitmap bitmap) {
+      return new CardImage(null, bitmap, null);
+   }
+
+   static CardImage fromDrawable(Drawable drawable) {
+      return new CardImage(null, null, drawable);
+   }
+
+   /** @return the drawable resource the image comes from, or 0 if it does not */
+   int getResourceId() {
+      return source != null && source.type == CardImageCache.Source.RESOURCE ? source.resourceId : 0;
+   }
+
+   /**
+    * @return what identifies the image: its source for resources, files and Uris, which compare by
+    *         value, or the bitmap or drawable itself
+    */
+   Object getKey() {
+      if (source != null) {
+         return source;
+      }
+      return bitmap != null ? bitmap : givenDrawable;
+   }
+
+   CardImageCache.Source getSource() {
+      return source;
+   }
+
+   /** @return whether the image is read from a file or Uri, which is left to {@link CardImageLoader} */
+   boolean isDeferred() {
+      return source != null && source.type != CardImageCache.Source.RESOURCE;
+   }
+
+   /** @return the drawable loaded for a view of the given size, or {@code null} if there is none yet */
+   Drawable getLoadedDrawable(int width, int height) {
+      if (givenDrawable != null) {
+         return givenDrawable;
+      }
+      return drawable != null && (source == null || (this.width == width && this.height == height)) ? drawable : null;
+   }
+
+   /**
+    * Takes a bitmap acquired from {@link CardImageCache} for a view of the given size, as
+    * {@link #getDrawable(Context, int, int)} would have loaded it.
+    * @return the drawable to show
+    */
+   Drawable setLoadedBitmap(Context context, Bitmap bitmap, int width, int height) {
+      release();
+      cachedBitmap = bitmap;
+      drawable = new BitmapDrawable(context.getResources(), bitmap);
+      this.width = width;
+      this.height = height;
+      return drawable;
+   }
+
+   /** @return whether the image can be drawn off the main thread, which a given drawable cannot */
+   boolean canDrawInBackground() {
+      return givenDrawable == null;
+   }
+
+   /**
+    * Loads the image as a bitmap that can be drawn into software canvases, subsampled for a view of
+    * the given size; safe to call on a background thread when {@link #canDrawInBackground()}.
+    * @return the bitmap, or {@code null} if the image could not be loaded
+    */
+   Bitmap loadBitmap(Context context, int width, int height) {
+      if (bitmap != null) {
+         return bitmap;
+      }
+      return source != null ? CardImageCache.decode(context, source, width, height, false) : null;
+   }
+
+   /**
+    * @return a drawable of the image that can be drawn into software canvases, at full resolution
+    *         for resources, or sized for the display for files and Uris; loaded anew for every call
+    */
+   Drawable getDrawable(Context context) {
+      if (givenDrawable != null) {
+         return givenDrawable;
+      }
+      if (bitmap != null) {
+         return new BitmapDrawable(context.getResources(), bitmap);
+      }
+      if (source.type == CardImageCache.Source.RESOURCE) {
+         return context.getResources().getDrawable(source.resourceId);
+      }
+      DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      Bitmap decoded = CardImageCache.decode(context, source, metrics.widthPixels, metrics.heightPixels, false);
+      return decoded != null ? new BitmapDrawable(context.getResources(), decoded) : null;
+   }
+
+   /**
+    * @return the drawable to show in a view of the given size, loading it if it was released or
+    *         was loaded for another size
+    */
+   Drawable getDrawable(Context context, int width, int height) {
+      Drawable loaded = getLoadedDrawable(width, height);
+      if (loaded != null) {
+         return loaded;
+      }
+      release();
+      if (bitmap != null) {
+         drawable = new BitmapDrawable(context.getResources(), bitmap);
+         return drawable;
+      }
+      cachedBitmap = CardImageCache.acquire(context, source, width, height);
+      if (cachedBitmap != null) {
+         drawable = new BitmapDrawable(context.getResources(), cachedBitmap);
+      } else if (source.type == CardImageCache.Source.RESOURCE) {
+         drawable = context.getResources().getDrawable(source.resourceId);
+      }
+      this.width = width;
+      this.height = height;
+      return drawable;
+   }
+
+   /** Drops the drawable loaded for a view; it is loaded again the next time it is needed. */
+   void release() {
+      drawable = null;
+      if (cachedBitmap != null) {
+         CardImageCache.release(cachedBitmap);
+         cachedBitmap = null;
+      }
+   }
+}
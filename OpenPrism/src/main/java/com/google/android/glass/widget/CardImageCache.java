@@ -0,0 +1,423 @@
+package com.google.android.glass.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Process-wide cache of the bitmaps decoded for the images of {@link CardBuilder} cards.
+ * <p>
+ * Bitmaps are keyed by their {@link Source}, a drawable resource, a file or a content {@link Uri},
+ * and by the size of the image view they are decoded for, and
+ * are subsampled while decoding to no less than that size, so that the same image added to several
+ * cards is decoded once, and at no more than the resolution it is shown at. The least recently used
+ * bitmaps are evicted once the cache holds more than {@link #getMaxSize()} bytes.
+ * <p>
+ * Bitmaps evicted while no card shows them are kept to be decoded into again with
+ * {@link BitmapFactory.Options#inBitmap}, which saves allocating new ones; those still shown are
+ * left to their cards. From API 26 on bitmaps are decoded into graphics memory as
+ * {@link Bitmap.Config#HARDWARE} bitmaps instead, which cannot be reused that way but take no
+ * space on the Java heap.
+ */
+public final class CardImageCache {
+   /** Share of the evicted bitmaps kept for reuse, relative to the size of the cache. */
+   private static final int REUSABLE_FRACTION = 4;
+
+   private static final Object lock = new Object();
+   /** Cached entries, least recently used first. */
+   private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+   /** Cached entries, by bitmap. */
+   private static final IdentityHashMap<Bitmap, Entry> liveEntries = new IdentityHashMap<>();
+   /** Resources that could not be decoded as bitmaps. */
+   private static final HashSet<Source> notBitmaps = new HashSet<>();
+   private static final ArrayList<Bitmap> reusable = new ArrayList<>();
+   private static long maxSize = Runtime.getRuntime().maxMemory() / 8;
+   private static long size;
+   private static long reusableSize;
+   private static int hitCount;
+   private static int missCount;
+   private static int reuseCount;
+
+   private CardImageCache() {
+   }
+
+   /**
+    * Returns the bitmap of a source decoded for an image view of the given size, from the cache or
+    * decoded on the spot. Each bitmap returned must be given back with {@link #release(Bitmap)}
+    * once the card no longer shows it.
+    * @return the bitmap, or {@code null} if the source could not be decoded; for resources that are
+    *         not bitmaps, e.g. vector or shape drawables, the caller loads a
+    *         {@link android.graphics.drawable.Drawable} instead
+    */
+   static Bitmap acquire(Context context, Source source, int width, int height) {
+      Key key = new Key(source, width, height);
+      synchronized (lock) {
+         Entry entry = entries.get(key);
+         if (entry != null) {
+            hitCount++;
+            entry.references++;
+            return entry.bitmap;
+         }
+         if (notBitmaps.contains(source)) {
+            return null;
+         }
+         missCount++;
+      }
+      Bitmap bitmap = decode(context, source, width, height, Build.VERSION.SDK_INT >= Build.VERSION_CODES.O);
+      synchronized (lock) {
+         if (bitmap == null) {
+            if (source.type == Source.RESOURCE) {
+               notBitmaps.add(source);
+            }
+            return null;
+         }
+         Entry entry = entries.get(key);
+         if (entry != null) {
+            // Decoded by another thread in the meantime
+            offerReusableLocked(bitmap);
+            entry.references++;
+            return entry.bitmap;
+         }
+         entry = new Entry(bitmap);
+         entry.references = 1;
+         entries.put(key, entry);
+         liveEntries.put(bitmap, entry);
+         size += entry.size;
+         trimToSizeLocked(maxSize);
+         return bitmap;
+      }
+   }
+
+   /**
+    * Returns the bitmap of a source for an image view of the given size if it is cached, without
+    * decoding it otherwise, e.g. to show it right away on the main thread. A bitmap returned must
+    * be given back with {@link #release(Bitmap)} as for {@link #acquire(Context, Source, int, int)}.
+    * @return the cached bitmap, or {@code null} if there is none
+    */
+   static Bitmap acquireCached(Source source, int width, int height) {
+      synchronized (lock) {
+         Entry entry = entries.get(new Key(source, width, height));
+         if (entry == null) {
+            return null;
+         }
+         hitCount++;
+         entry.references++;
+         return entry.bitmap;
+      }
+   }
+
+   /** Gives back a bitmap returned by {@link #acquire(Context, Source, int, int)} or {@link #acquireCached(Source, int, int)}. */
+   static void release(Bitmap bitmap) {
+      synchronized (lock) {
+         Entry entry = liveEntries.get(bitmap);
+         if (entry == null || entry.references == 0) {
+            return;
+         }
+         entry.references--;
+      }
+   }
+
+   /** @return the number of bitmaps found in the cache */
+   public static int getHitCount() {
+      synchronized (lock) {
+         return hitCount;
+      }
+   }
+
+   /** @return the number of bitmaps that had to be decoded */
+   public static int getMissCount() {
+      synchronized (lock) {
+         return missCount;
+      }
+   }
+
+   /** @return the share of bitmaps found in the cache, between 0 and 1 */
+   public static float getHitRate() {
+      synchronized (lock) {
+         int requests = hitCount + missCount;
+         return requests > 0 ? hitCount / (float) requests : 0;
+      }
+   }
+
+   /** @return the number of decodes that reused the memory of an evicted bitmap */
+   public static int getReuseCount() {
+      synchronized (lock) {
+         return reuseCount;
+      }
+   }
+
+   /** @return the number of bytes taken by the cached bitmaps */
+   public static long getSize() {
+      synchronized (lock) {
+         return size;
+      }
+   }
+
+   /** @return the number of bytes the cached bitmaps can take; an eighth of the heap by default */
+   public static long getMaxSize() {
+      synchronized (lock) {
+         return maxSize;
+      }
+   }
+
+   /** Sets the number of bytes the cached bitmaps can take, evicting bitmaps as needed. */
+   public static void setMaxSize(long maxSize) {
+      synchronized (lock) {
+         CardImageCache.maxSize = Math.max(0, maxSize);
+         trimToSizeLocked(CardImageCache.maxSize);
+      }
+   }
+
+   /** Evicts all the cached bitmaps and drops the ones kept for reuse. */
+   public static void clear() {
+      synchronized (lock) {
+         trimToSizeLocked(0);
+         reusable.clear();
+         reusableSize = 0;
+      }
+   }
+
+   /** Resets the hit, miss and reuse counts. */
+   public static void resetStats() {
+      synchronized (lock) {
+         hitCount = 0;
+         missCount = 0;
+         reuseCount = 0;
+      }
+   }
+
+   /** Evicts half the cached bitmaps under moderate memory pressure, and all of them when it is critical. */
+   static void trimMemory(int level) {
+      if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL || level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+         clear();
+      } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+         synchronized (lock) {
+            trimToSizeLocked(size / 2);
+            reusable.clear();
+            reusableSize = 0;
+         }
+      }
+   }
+
+   private static void trimToSizeLocked(long targetSize) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (size > targetSize && iterator.hasNext()) {
+         Entry entry = iterator.next();
+         iterator.remove();
+         size -= entry.size;
+         // A bitmap still shown by a card is left to it, forgetting about it spares holding on to
+         // it for cards that are dropped without being released
+         liveEntries.remove(entry.bitmap);
+         if (entry.references == 0) {
+            offerReusableLocked(entry.bitmap);
+         }
+      }
+   }
+
+   /** Keeps a bitmap nothing shows any more to decode into, if it can be and there is room. */
+   private static void offerReusableLocked(Bitmap bitmap) {
+      if (!bitmap.isMutable() || bitmap.isRecycled()) {
+         return;
+      }
+      int bytes = bitmap.getAllocationByteCount();
+      if (reusableSize + bytes > maxSize / REUSABLE_FRACTION) {
+         return;
+      }
+      reusable.add(bitmap);
+      reusableSize += bytes;
+   }
+
+   /** @return the smallest reusable bitmap that can hold {@code bytes}, removed from the reusable ones */
+   private static Bitmap takeReusable(int bytes) {
+      synchronized (lock) {
+         int best = -1;
+         for (int i = 0; i < reusable.size(); i++) {
+            int allocation = reusable.get(i).getAllocationByteCount();
+            if (allocation >= bytes && (best < 0 || allocation < reusable.get(best).getAllocationByteCount())) {
+               best = i;
+            }
+         }
+         if (best < 0) {
+            return null;
+         }
+         Bitmap bitmap = reusable.remove(best);
+         reusableSize -= bitmap.getAllocationByteCount();
+         return bitmap;
+      }
+   }
+
+   /**
+    * Decodes a source subsampled for an image view of the given size, outside of the cache, e.g. to
+    * draw it into another bitmap.
+    * @param hardware whether the bitmap may be a {@link Bitmap.Config#HARDWARE} bitmap, which
+    *                 cannot be drawn into software canvases; otherwise it may reuse an evicted bitmap
+    * @return the bitmap, or {@code null} if the source could not be decoded
+    */
+   static Bitmap decode(Context context, Source source, int width, int height, boolean hardware) {
+      BitmapFactory.Options options = new BitmapFactory.Options();
+      options.inJustDecodeBounds = true;
+      // Sampled for the view's size, the density of the resource folder does not matter
+      options.inScaled = false;
+      decodeSource(context, source, options);
+      if (options.outWidth <= 0 || options.outHeight <= 0) {
+         return null;
+      }
+      int sampleSize = getSampleSize(options.outWidth, options.outHeight, width, height);
+      options.inJustDecodeBounds = false;
+      options.inSampleSize = sampleSize;
+      if (hardware) {
+         options.inPreferredConfig = Bitmap.Config.HARDWARE;
+         return decodeSource(context, source, options);
+      }
+      options.inMutable = true;
+      int sampledWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+      int sampledHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+      options.inBitmap = takeReusable(sampledWidth * sampledHeight * 4);
+      if (options.inBitmap != null) {
+         try {
+            Bitmap bitmap = decodeSource(context, source, options);
+            if (bitmap != null) {
+               synchronized (lock) {
+                  reuseCount++;
+               }
+               return bitmap;
+            }
+         } catch (IllegalArgumentException e) {
+            // The bitmap could not be reused after all, e.g. for an indexed PNG; decode into a new one
+         }
+         options.inBitmap = null;
+      }
+      return decodeSource(context, source, options);
+   }
+
+   private static Bitmap decodeSource(Context context, Source source, BitmapFactory.Options options) {
+      switch (source.type) {
+         case Source.RESOURCE:
+            return BitmapFactory.decodeResource((Resources) source.location, source.resourceId, options);
+         case Source.FILE:
+            return BitmapFactory.decodeFile((String) source.location, options);
+         default:
+            InputStream stream = null;
+            try {
+               stream = context.getContentResolver().openInputStream((Uri) source.location);
+               return stream != null ? BitmapFactory.decodeStream(stream, null, options) : null;
+            } catch (IOException | SecurityException e) {
+               Log.w("OpenPrism", "Could not open card image " + source.location, e);
+               return null;
+            } finally {
+               if (stream != null) {
+                  try {
+                     stream.close();
+                  } catch (IOException e) {
+                     // Nothing left to read from it
+                  }
+               }
+            }
+      }
+   }
+
+   /** @return the largest power of two the image can be divided by while still covering the view */
+   private static int getSampleSize(int imageWidth, int imageHeight, int width, int height) {
+      int sampleSize = 1;
+      while (imageWidth / (sampleSize * 2) >= width && imageHeight / (sampleSize * 2) >= height) {
+         sampleSize *= 2;
+      }
+      return sampleSize;
+   }
+
+   /** Where a bitmap is decoded from, whatever the size it is decoded for. */
+   static final class Source {
+      static final int RESOURCE = 0;
+      static final int FILE = 1;
+      static final int URI = 2;
+
+      final int type;
+      /** The {@link Resources} of a resource, the path of a file or the {@link Uri}. */
+      final Object location;
+      final int resourceId;
+
+      private Source(int type, Object location, int resourceId) {
+         this.type = type;
+         this.location = location;
+         this.resourceId = resourceId;
+      }
+
+      static Source fromResource(Resources resources, int resourceId) {
+         return new Source(RESOURCE, resources, resourceId);
+      }
+
+      static Source fromFile(String path) {
+         return new Source(FILE, path, 0);
+      }
+
+      static Source fromUri(Uri uri) {
+         return new Source(URI, uri, 0);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Source)) {
+            return false;
+         }
+         Source other = (Source) o;
+         // Resources are compared by identity, as they do not override equals()
+         return type == other.type && resourceId == other.resourceId && location.equals(other.location);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * (31 * type + location.hashCode()) + resourceId;
+      }
+   }
+
+   private static final class Key {
+      final Source source;
+      final int width;
+      final int height;
+
+      Key(Source source, int width, int height) {
+         this.source = source;
+         this.width = width;
+         this.height = height;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return width == other.width && height == other.height && source.equals(other.source);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * (31 * source.hashCode() + width) + height;
+      }
+   }
+
+   private static final class Entry {
+      final Bitmap bitmap;
+      final int size;
+      /** Number of card images that show the bitmap. */
+      int references;
+
+      Entry(Bitmap bitmap) {
+         this.bitmap = bitmap;
+         this.size = bitmap.getAllocationByteCount();
+      }
+   }
+}
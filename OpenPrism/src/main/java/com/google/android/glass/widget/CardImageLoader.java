@@ -0,0 +1,186 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Shows card images read from files and Uris, such as photos, without decoding them on the main
+ * thread, and runs the other {@link Task}s that produce the bitmap of a {@link CardImageTarget}.
+ * <p>
+ * An image already in {@link CardImageCache} is shown right away. Otherwise the target shows a
+ * placeholder while the image is decoded on a small pool of background threads, and the image
+ * replaces the placeholder once decoded. Loading a target again, or clearing it as its card leaves
+ * the window of a {@link CardScrollView}, cancels the load in flight for it.
+ */
+final class CardImageLoader {
+   private static final int THREAD_COUNT = 2;
+   private static final int PLACEHOLDER_COLOR = 0xFF222222;
+
+   private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+   private static ExecutorService executor;
+
+   private CardImageLoader() {
+   }
+
+   private static synchronized ExecutorService getExecutor() {
+      if (executor == null) {
+         executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+               return new Thread(new Runnable() {
+                  @Override
+                  public void run() {
+                     Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                     runnable.run();
+                  }
+               }, "CardImageLoader");
+            }
+         });
+      }
+      return executor;
+   }
+
+   /**
+    * Shows a deferred image in a target of the given size: right away if it is loaded or cached,
+    * after a placeholder otherwise. Must be called on the main thread.
+    */
+   static void load(Context context, CardImage image, CardImageTarget target, int width, int height) {
+      cancel(target);
+      Drawable drawable = image.getLoadedDrawable(width, height);
+      if (drawable == null) {
+         Bitmap cached = CardImageCache.acquireCached(image.getSource(), width, height);
+         if (cached != null) {
+            drawable = image.setLoadedBitmap(context, cached, width, height);
+         }
+      }
+      if (drawable != null) {
+         target.setImageDrawable(drawable);
+         return;
+      }
+      start(new ImageTask(context, image, target, width, height));
+   }
+
+   /**
+    * Shows a placeholder in the target of a task and runs the task in the background, cancelling
+    * the one in flight for the target, if any. Must be called on the main thread.
+    */
+   static void start(Task task) {
+      cancel(task.target);
+      task.target.setImageDrawable(new ColorDrawable(PLACEHOLDER_COLOR));
+      task.target.setRequest(task);
+      task.future = getExecutor().submit(task);
+   }
+
+   /** Cancels the task in flight for a target, if any. Must be called on the main thread. */
+   static void cancel(CardImageTarget target) {
+      Object request = target.getRequest();
+      if (request instanceof Task) {
+         Task task = (Task) request;
+         task.cancelled = true;
+         if (task.future != null) {
+            // A task that already started is left to finish, e.g. so that its bitmap is cached
+            task.future.cancel(false);
+         }
+         target.setRequest(null);
+      }
+   }
+
+   /** Work that produces the bitmap shown by a target, run on a background thread. */
+   abstract static class Task implements Runnable {
+      final CardImageTarget target;
+      private Future<?> future;
+      private volatile boolean cancelled;
+
+      Task(CardImageTarget target) {
+         this.target = target;
+      }
+
+      /** Produces the bitmap, on a background thread. */
+      abstract Bitmap load();
+
+      /** Shows the bitmap, or handles a failed load if it is {@code null}, on the main thread. */
+      abstract void deliver(Bitmap bitmap);
+
+      /** Disposes of a bitmap loaded after the task was cancelled, on the main thread. */
+      void discard(Bitmap bitmap) {
+      }
+
+      @Override
+      public final void run() {
+         if (cancelled) {
+            return;
+         }
+         final Bitmap bitmap = load();
+         mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+               finish(bitmap);
+            }
+         });
+      }
+
+      private void finish(Bitmap bitmap) {
+         if (cancelled || target.getRequest() != this) {
+            if (bitmap != null) {
+               discard(bitmap);
+            }
+            return;
+         }
+         target.setRequest(null);
+         deliver(bitmap);
+      }
+   }
+
+   private static final class ImageTask extends Task {
+      final Context context;
+      final CardImage image;
+      final CardImageCache.Source source;
+      final int width;
+      final int height;
+
+      ImageTask(Context context, CardImage image, CardImageTarget target, int width, int height) {
+         super(target);
+         this.context = context;
+         this.image = image;
+         this.source = image.getSource();
+         this.width = width;
+         this.height = height;
+      }
+
+      @Override
+      Bitmap load() {
+         return CardImageCache.acquire(context, source, width, height);
+      }
+
+      @Override
+      void deliver(Bitmap bitmap) {
+         if (bitmap == null) {
+            target.setImageDrawable(null);
+            return;
+         }
+         Drawable drawable = image.getLoadedDrawable(width, height);
+         if (drawable != null) {
+            // Loaded for another target of the same card in the meantime
+            CardImageCache.release(bitmap);
+         } else {
+            drawable = image.setLoadedBitmap(context, bitmap, width, height);
+         }
+         target.setImageDrawable(drawable);
+      }
+
+      @Override
+      void discard(Bitmap bitmap) {
+         CardImageCache.release(bitmap);
+      }
+   }
+}
@@ -0,0 +1,92 @@
+package com.google.android.glass.widget;
+
+import android.graphics.Rect;
+import android.util.DisplayMetrics;
+
+/**
+ * Sizes, in pixels, of the image views of a card that fills the display, so that images can be
+ * decoded and sent at the size they are shown at rather than at full resolution.
+ * <p>
+ * The sizes follow the layouts built by {@link CardViewFactory} and the remote layouts of
+ * {@link CardBuilder#getRemoteViews()}, which lay out their images alike.
+ */
+final class CardImageSlots {
+   private CardImageSlots() {
+   }
+
+   /** @return the width of the image mosaic: the whole card, or its left column for the column layouts */
+   static int getMosaicWidth(CardBuilder.Layout layout, DisplayMetrics metrics) {
+      return getMosaicWidth(layout, metrics.widthPixels);
+   }
+
+   /** Same as {@link #getMosaicWidth(CardBuilder.Layout, DisplayMetrics)}, for a card of the given width. */
+   static int getMosaicWidth(CardBuilder.Layout layout, int width) {
+      return isColumns(layout) ? width * CardStyle.IMAGE_COLUMN_WEIGHT / (CardStyle.IMAGE_COLUMN_WEIGHT + CardStyle.TEXT_COLUMN_WEIGHT) : width;
+   }
+
+   /**
+    * Sets {@code outBounds} to the bounds of image {@code index} of a mosaic of {@code count}
+    * images, relative to the mosaic. The first image takes half of the mosaic, or all of it when
+    * alone, and the others share the other half in one row of up to two, or in two rows of two,
+    * where the fourth image takes the whole bottom row when it is the last one.
+    */
+   static void getImageBounds(CardBuilder.Layout layout, int index, int count, DisplayMetrics metrics, Rect outBounds) {
+      getImageBounds(layout, index, count, getMosaicWidth(layout, metrics), metrics.heightPixels, outBounds);
+   }
+
+   /** Same as {@link #getImageBounds(CardBuilder.Layout, int, int, DisplayMetrics, Rect)}, for a mosaic of the given size. */
+   static void getImageBounds(CardBuilder.Layout layout, int index, int count, int width, int height, Rect outBounds) {
+      boolean horizontal = !isColumns(layout);
+      if (index == 0) {
+         outBounds.set(0, 0, count > 1 && horizontal ? width / 2 : width, count > 1 && !horizontal ? height / 2 : height);
+         return;
+      }
+      int left = horizontal ? width / 2 : 0;
+      int top = horizontal ? 0 : height / 2;
+      int columns = count > 3 ? 2 : Math.max(1, Math.min(2, count - 1));
+      int rows = count > 3 ? 2 : 1;
+      int cellWidth = (width - left) / columns;
+      int cellHeight = (height - top) / rows;
+      int column = (index - 1) % 2;
+      int row = (index - 1) / 2;
+      if (index == 3 && count == 4) {
+         // Alone in the bottom row, as the fifth image view is gone
+         outBounds.set(left, top + row * cellHeight, width, top + (row + 1) * cellHeight);
+         return;
+      }
+      outBounds.set(left + column * cellWidth, top + row * cellHeight,
+            left + (column + 1) * cellWidth, top + (row + 1) * cellHeight);
+   }
+
+   /** @return the size of the square icon view of the layout, or 0 if it has none */
+   static int getIconSize(CardBuilder.Layout layout, DisplayMetrics metrics) {
+      switch (layout) {
+         case ALERT:
+            return dp(metrics, CardStyle.ALERT_ICON_SIZE);
+         case AUTHOR:
+         case CAPTION:
+            return dp(metrics, CardStyle.AVATAR_SIZE);
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            return dp(metrics, CardStyle.COLUMNS_ICON_SIZE);
+         case MENU:
+         case TITLE:
+            return dp(metrics, CardStyle.TITLE_ICON_SIZE);
+         default:
+            return 0;
+      }
+   }
+
+   /** @return the size of the square attribution icon view */
+   static int getAttributionIconSize(DisplayMetrics metrics) {
+      return dp(metrics, CardStyle.ATTRIBUTION_ICON_SIZE);
+   }
+
+   static int dp(DisplayMetrics metrics, int dp) {
+      return Math.round(dp * metrics.density);
+   }
+
+   private static boolean isColumns(CardBuilder.Layout layout) {
+      return layout == CardBuilder.Layout.COLUMNS || layout == CardBuilder.Layout.COLUMNS_FIXED;
+   }
+}
@@ -0,0 +1,21 @@
+package com.google.android.glass.widget;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * Where an image of a card is shown: an image view of the views {@link CardViewFactory} builds, or
+ * an image slot of a {@link CardCanvasView}, which draws the drawable itself. {@link CardBuilder},
+ * {@link CardImageLoader} and {@link CardMosaic} show images through it, whichever way the card is
+ * drawn.
+ */
+interface CardImageTarget {
+   void setImageDrawable(Drawable drawable);
+
+   /** Shows the target, or hides it so that it takes no room in the card, as {@link android.view.View#GONE} does. */
+   void setVisible(boolean visible);
+
+   /** @return the load in flight for the target, as set by {@link CardImageLoader}, or {@code null} */
+   Object getRequest();
+
+   void setRequest(Object request);
+}
@@ -0,0 +1,144 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+
+import com.google.android.glass.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The images of a card composited into one bitmap the size of the image mosaic, together with the
+ * gradient behind the footer and the dim of the layout, so that the card draws a single image
+ * instead of up to five plus the views layered over them.
+ * <p>
+ * The bitmap is drawn on the background threads of {@link CardImageLoader}, the view showing a
+ * placeholder until it is ready, and is kept until the card's images are released.
+ *
+ * @see CardBuilder#setCompositeImages(boolean)
+ */
+final class CardMosaic {
+   private final Context context;
+   private final CardBuilder.Layout layout;
+   private Drawable drawable;
+   /** Incremented on every release, so that composites of images that changed are dropped. */
+   private int generation = 0;
+
+   CardMosaic(Context context, CardBuilder.Layout layout) {
+      this.context = context;
+      this.layout = layout;
+   }
+
+   /** @return whether the images of a card with the given layout can be composited */
+   static boolean isSupported(CardBuilder.Layout layout, List<CardImage> images) {
+      switch (layout) {
+         case TEXT:
+         case TEXT_FIXED:
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            break;
+         default:
+            return false;
+      }
+      if (images.isEmpty()) {
+         return false;
+      }
+      for (CardImage image : images) {
+         if (!image.canDrawInBackground()) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /** Shows the composited images in a target spanning the mosaic, compositing them first if needed. */
+   void show(CardImageTarget target, List<CardImage> images) {
+      if (drawable != null) {
+         CardImageLoader.cancel(target);
+         target.setImageDrawable(drawable);
+         return;
+      }
+      CardImageLoader.start(new CompositeTask(target, new ArrayList<>(images)));
+   }
+
+   /** Drops the composited bitmap; it is drawn again the next time it is shown. */
+   void release() {
+      drawable = null;
+      generation++;
+   }
+
+   /** Draws the images, each cropped to its place in the mosaic, then the overlay and the dim. */
+   private Bitmap composite(List<CardImage> images) {
+      DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      int width = CardImageSlots.getMosaicWidth(layout, metrics);
+      int height = metrics.heightPixels;
+      if (width <= 0 || height <= 0) {
+         return null;
+      }
+      Bitmap mosaic = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      Canvas canvas = new Canvas(mosaic);
+      Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+      Rect bounds = new Rect();
+      Rect source = new Rect();
+      int count = Math.min(images.size(), 5);
+      for (int i = 0; i < count; i++) {
+         CardImageSlots.getImageBounds(layout, i, count, metrics, bounds);
+         Bitmap image = images.get(i).loadBitmap(context, bounds.width(), bounds.height());
+         if (image == null) {
+            continue;
+         }
+         getCenterCrop(image.getWidth(), image.getHeight(), bounds.width(), bounds.height(), source);
+         canvas.drawBitmap(image, source, bounds, paint);
+      }
+
+      Drawable overlay = context.getResources().getDrawable(R.drawable.rect_gradient).mutate();
+      overlay.setBounds(0, height - CardImageSlots.dp(metrics, CardStyle.OVERLAY_HEIGHT), width, height);
+      overlay.draw(canvas);
+      if (layout == CardBuilder.Layout.TEXT || layout == CardBuilder.Layout.TEXT_FIXED) {
+         canvas.drawColor(CardStyle.DIM_COLOR);
+      }
+      return mosaic;
+   }
+
+   /** Sets {@code outSource} to the part of an image that fills a view with {@code centerCrop}. */
+   private static void getCenterCrop(int imageWidth, int imageHeight, int width, int height, Rect outSource) {
+      float scale = Math.max(width / (float) imageWidth, height / (float) imageHeight);
+      int cropWidth = Math.min(imageWidth, Math.round(width / scale));
+      int cropHeight = Math.min(imageHeight, Math.round(height / scale));
+      int left = (imageWidth - cropWidth) / 2;
+      int top = (imageHeight - cropHeight) / 2;
+      outSource.set(left, top, left + cropWidth, top + cropHeight);
+   }
+
+   private final class CompositeTask extends CardImageLoader.Task {
+      private final List<CardImage> images;
+      private final int taskGeneration = generation;
+
+      CompositeTask(CardImageTarget target, List<CardImage> images) {
+         super(target);
+         this.images = images;
+      }
+
+      @Override
+      Bitmap load() {
+         return composite(images);
+      }
+
+      @Override
+      void deliver(Bitmap composited) {
+         if (composited == null || taskGeneration != generation) {
+            target.setImageDrawable(null);
+            return;
+         }
+         drawable = new BitmapDrawable(context.getResources(), composited);
+         target.setImageDrawable(drawable);
+      }
+   }
+}
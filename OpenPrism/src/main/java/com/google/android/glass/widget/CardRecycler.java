@@ -0,0 +1,68 @@
+package com.google.android.glass.widget;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.widget.Adapter;
+
+import java.util.ArrayList;
+
+/**
+ * Holds cards that were detached from a {@link CardScrollView} because they left the window of
+ * materialized cards, so that they can be handed back to the adapter as {@code convertView}s.
+ * <p>
+ * Detached cards are kept in a separate heap per view type, as reported by
+ * {@link CardScrollAdapter#getItemViewType(int)}, so that a card is only ever offered to a
+ * position of the same type. Cards of type {@link Adapter#IGNORE_ITEM_VIEW_TYPE} are never kept.
+ */
+final class CardRecycler {
+   private final SparseArray<ArrayList<View>> scrapHeaps = new SparseArray<>();
+   private int maxScrapViewsPerType = 1;
+
+   /** Sets how many detached cards are kept around per view type; extra cards are dropped. */
+   void setMaxScrapViews(int maxScrapViews) {
+      this.maxScrapViewsPerType = Math.max(0, maxScrapViews);
+      for (int i = 0; i < scrapHeaps.size(); i++) {
+         ArrayList<View> heap = scrapHeaps.valueAt(i);
+         while (heap.size() > maxScrapViewsPerType) {
+            heap.remove(heap.size() - 1);
+         }
+      }
+   }
+
+   /** Puts a detached card of the given view type into the pool, if there is still room for it. */
+   void addScrapView(View scrap, int viewType) {
+      if (scrap == null) {
+         return;
+      }
+      // Whether it is kept or dropped, the card no longer shows its images
+      CardBuilder.unbindView(scrap);
+      if (viewType == Adapter.IGNORE_ITEM_VIEW_TYPE) {
+         return;
+      }
+      ArrayList<View> heap = scrapHeaps.get(viewType);
+      if (heap == null) {
+         heap = new ArrayList<>(maxScrapViewsPerType);
+         scrapHeaps.put(viewType, heap);
+      }
+      if (heap.size() < maxScrapViewsPerType) {
+         heap.add(scrap);
+      }
+   }
+
+   /** @return a detached card of the given view type, or {@code null} if there is none */
+   View getScrapView(int viewType) {
+      if (viewType == Adapter.IGNORE_ITEM_VIEW_TYPE) {
+         return null;
+      }
+      ArrayList<View> heap = scrapHeaps.get(viewType);
+      if (heap == null || heap.isEmpty()) {
+         return null;
+      }
+      return heap.remove(heap.size() - 1);
+   }
+
+   /** Drops all detached cards. */
+   void clear() {
+      scrapHeaps.clear();
+   }
+}
@@ -4,6 +4,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 
+import java.util.ArrayList;
+
 /**
  *A special form of a {@link android.widget.BaseAdapter}.
  * <p>
@@ -19,6 +21,8 @@ import android.widget.BaseAdapter;
  * See <a href="https://developers.google.com/glass/develop/gdk/card-scroller#scrolling_cards_in_activities">Scrolling cards in activities</a> for more information.
  */
 public abstract class CardScrollAdapter extends BaseAdapter {
+    private final ArrayList<ItemRangeObserver> itemRangeObservers = new ArrayList<>();
+
     public abstract int getCount();
 
     public abstract Object getItem(int i);
@@ -66,7 +70,69 @@ public abstract class CardScrollAdapter extends BaseAdapter {
         return 0;
     }
 
+    /**
+     * Notifies the attached views that {@code itemCount} items were inserted at {@code positionStart}
+     * and that no other item changed. A {@link com.google.android.glass.widget.CardScrollView} keeps
+     * its selected card and the cards it already shows as they are, moving them along if the items
+     * were inserted before them, and only binds the new cards that come into its window. Use this
+     * instead of {@link #notifyDataSetChanged()} to grow a timeline at either end.
+     */
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        for (int i = itemRangeObservers.size() - 1; i >= 0; i--) {
+            itemRangeObservers.get(i).onItemRangeInserted(positionStart, itemCount);
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Notifies the attached views that the {@code itemCount} items at {@code positionStart} were
+     * removed and that no other item changed. A {@link com.google.android.glass.widget.CardScrollView}
+     * detaches the cards of the removed items and moves the cards after them back without rebinding
+     * them; if the selected card was removed, the card that takes its place is selected.
+     */
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        for (int i = itemRangeObservers.size() - 1; i >= 0; i--) {
+            itemRangeObservers.get(i).onItemRangeRemoved(positionStart, itemCount);
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Notifies the attached views that the {@code itemCount} items at {@code positionStart} changed
+     * in place and that no other item changed. A {@link com.google.android.glass.widget.CardScrollView}
+     * only binds the cards it shows for those items again.
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        for (int i = itemRangeObservers.size() - 1; i >= 0; i--) {
+            itemRangeObservers.get(i).onItemRangeChanged(positionStart, itemCount);
+        }
+        notifyDataSetChanged();
+    }
+
+    void registerItemRangeObserver(ItemRangeObserver observer) {
+        if (!itemRangeObservers.contains(observer)) {
+            itemRangeObservers.add(observer);
+        }
+    }
+
+    void unregisterItemRangeObserver(ItemRangeObserver observer) {
+        itemRangeObservers.remove(observer);
+    }
+
     @Deprecated
     public void recycleView(View view) {
     }
+
+    /**
+     * Receives the item changes reported by {@link #notifyItemRangeInserted(int, int)},
+     * {@link #notifyItemRangeRemoved(int, int)} and {@link #notifyItemRangeChanged(int, int)}, ahead
+     * of the {@link android.database.DataSetObserver#onChanged()} that follows them.
+     */
+    interface ItemRangeObserver {
+        void onItemRangeInserted(int positionStart, int itemCount);
+
+        void onItemRangeRemoved(int positionStart, int itemCount);
+
+        void onItemRangeChanged(int positionStart, int itemCount);
+    }
 }
@@ -1,21 +1,41 @@
 package com.google.android.glass.widget;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Canvas;
 import android.graphics.Point;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+import android.view.Choreographer;
 import android.view.Display;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
 import android.view.WindowManager;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.widget.Adapter;
 import android.widget.AdapterView;
 import android.widget.HorizontalScrollView;
-import android.widget.LinearLayout;
+import android.widget.OverScroller;
 
 import com.google.android.glass.R;
+import com.google.android.glass.touchpad.GestureDetector;
+
+import java.util.ArrayList;
 
 /**
  * A {@link android.view.View} that shows horizontally scrolling children views, referred to as
@@ -39,11 +59,65 @@ import com.google.android.glass.R;
  * </ul>
  */
 public class CardScrollView extends HorizontalScrollView {
+   /** Number of cards kept attached on each side of the selected card unless configured otherwise. */
+   public static final int DEFAULT_OFFSCREEN_CARD_COUNT = 1;
+   private static final long INSERTION_DURATION_MS = 300;
+   private static final long DELETION_DURATION_MS = 250;
+   private static final int SNAP_DURATION_MS = 250;
+   private static final int SNAP_MIN_DURATION_MS = 100;
+   private static final int SNAP_MAX_DURATION_MS = 600;
+
    private CardScrollAdapter adapter;
-   private LinearLayout container;
+   private CardContainer container;
    private int currentIndex = 0;
+   /**
+    * Adapter position of the card laid out at the left edge of the container. The container only
+    * spans the cards it has room for, see {@link #updateWindow()}, so scroll offsets are relative
+    * to this position.
+    */
+   private int windowStart = 0;
+   private int cardWidth = 0;
+   private int offscreenCardCount = DEFAULT_OFFSCREEN_CARD_COUNT;
+   private boolean recyclingEnabled = false;
+   private final SparseArray<View> activeCards = new SparseArray<>();
+   private final SparseArray<View> previousCards = new SparseArray<>();
+   private boolean selectionScrollPending = false;
+   /** Scroll offset to add once the container is laid out after items were inserted before the selection. */
+   private int pendingScrollShift = 0;
+   private int pendingSelection = AdapterView.INVALID_POSITION;
+   private boolean cardAnimationRunning = false;
+   /**
+    * Set while a deleted card drops out of view: the adapter already changed but the attached cards
+    * still follow its old positions, so nothing is bound and the selection does not move.
+    */
+   private boolean deletionPending = false;
+   private boolean dataChangeInProgress = false;
+   private boolean activated = true;
+   private boolean observerRegistered = false;
+   /** Direction of the last swipe or key navigation: 1 towards higher positions, -1 towards lower ones. */
+   private int navigationDirection = 1;
+   private final CardPrefetcher prefetcher = new CardPrefetcher();
+   private final CardRecycler recycler = new CardRecycler();
+   private final CardViewPool viewPool = new CardViewPool();
+   private Slider slider;
+   private Slider.Scroller positionScroller;
    private float startTouchX;
    private float startTouchY;
+   private float lastTouchX;
+   private boolean dragging = false;
+   private VelocityTracker velocityTracker;
+   private OverScroller snapScroller;
+   private int touchSlop;
+   private int minimumFlingVelocity;
+   private int maximumFlingVelocity;
+   private final ArrayList<GestureDetector> gestureDetectors = new ArrayList<>();
+   private boolean activityInputEnabled = true;
+   /** Set by the scroller while handling an event it acted upon, so that later stages do not see it. */
+   private boolean scrollerConsumedEvent = false;
+   /** Set once the scroller took over a touch stream that the later stages had already been given. */
+   private boolean inputStreamTakenOver = false;
+   private final long[] inputStageTimeNanos = new long[InputStage.values().length];
+   private final int[] inputStageEventCounts = new int[InputStage.values().length];
 
    public CardScrollView(Context context) {
       super(context);
@@ -75,9 +149,17 @@ public class CardScrollView extends HorizontalScrollView {
           | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
           | View.SYSTEM_UI_FLAG_FULLSCREEN);
 
-      setHorizontalScrollBarEnabled(true);
-      container = new LinearLayout(context);
-      container.setOrientation(LinearLayout.HORIZONTAL);
+      // The position is shown by a Slider.Scroller instead, see updatePositionScroller(int)
+      setHorizontalScrollBarEnabled(false);
+      ViewConfiguration configuration = ViewConfiguration.get(context);
+      touchSlop = configuration.getScaledTouchSlop();
+      minimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+      maximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+      snapScroller = new OverScroller(context, new DecelerateInterpolator());
+      container = new CardContainer(context);
+      // Cards are bound into the container, that is where CardBuilder looks for the pool
+      container.setTag(R.id.card_view_pool, viewPool);
+      recycler.setMaxScrapViews(2 * offscreenCardCount + 2);
       addView(container, new LayoutParams(
               LayoutParams.MATCH_PARENT,
               LayoutParams.MATCH_PARENT
@@ -86,12 +168,72 @@ public class CardScrollView extends HorizontalScrollView {
 
    /** Tells the {@link CardScrollView} to activate and be ready for display. TODO(ajcbik): investigate if we can replace [de]activate with focus events. */
     public void activate() {
-      Log.e("OpenPrism", "Not implemented: activate()");
+      if (activated) {
+         return;
+      }
+      activated = true;
+      if (adapter == null) {
+         return;
+      }
+      registerObserver();
+      clampSelection();
+      warmViewPool();
+      // Only the selected card is bound right away, its neighbours follow in the next frame
+      populate(0);
+      selectionScrollPending = true;
+      container.requestLayout();
+      postOnAnimation(restoreWindow);
    }
 
    /** Tells the {@link CardScrollView} to deactivate; it will not be displayed until after {@link #activate()} is called again. */
    public void deactivate() {
-      Log.e("OpenPrism", "Not implemented: deactivate()");
+      if (!activated) {
+         return;
+      }
+      activated = false;
+      removeCallbacks(restoreWindow);
+      if (positionScroller != null) {
+         positionScroller.hide();
+      }
+      prefetcher.cancel();
+      snapScroller.abortAnimation();
+      boolean deletionInterrupted = stopCardAnimations();
+      unregisterObserver();
+      if (deletionInterrupted) {
+         // Owed to the adapter's other observers; this scroller reads the adapter again on activate()
+         adapter.notifyDataSetChanged();
+      }
+      // Drop every card, so that their view trees and the images they show can be collected
+      for (int i = 0; i < activeCards.size(); i++) {
+         CardBuilder.releaseImages(activeCards.valueAt(i));
+      }
+      detachAllCards();
+      prefetcher.recycleAll();
+      recycler.clear();
+      container.requestLayout();
+   }
+
+   private final Runnable restoreWindow = new Runnable() {
+      @Override
+      public void run() {
+         populate();
+      }
+   };
+
+   private void registerObserver() {
+      if (!observerRegistered && adapter != null) {
+         adapter.registerDataSetObserver(observer);
+         adapter.registerItemRangeObserver(observer);
+         observerRegistered = true;
+      }
+   }
+
+   private void unregisterObserver() {
+      if (observerRegistered) {
+         adapter.unregisterDataSetObserver(observer);
+         adapter.unregisterItemRangeObserver(observer);
+         observerRegistered = false;
+      }
    }
 
    /**
@@ -121,94 +263,766 @@ public class CardScrollView extends HorizontalScrollView {
    public boolean animate(int position, CardScrollView.Animation animationType) {
       if (animationType == CardScrollView.Animation.NAVIGATION) {
          // Smooth scroll to the position
-         if (position >= 0 && position < adapter.getCount()) {
+         if (!deletionPending && position >= 0 && position < adapter.getCount()) {
             currentIndex = position;
-            smoothScrollTo(position * getWidth(), 0);
+            populate();
+            snapToCard(SNAP_DURATION_MS);
             performItemSelected();
             return true;
          }
-      } else if (animationType == CardScrollView.Animation.INSERTION || animationType == CardScrollView.Animation.DELETION) {
-         // No animations implemented for now
-         rebuild();
+      } else if (animationType == CardScrollView.Animation.INSERTION) {
+         return animateInsertion(position);
+      } else if (animationType == CardScrollView.Animation.DELETION) {
+         return animateDeletion(position);
       }
       return false;
    }
 
+   /**
+    * Selects the freshly inserted card and lets it rise into view. The adapter is notified right
+    * away, so that only the new card needs to be bound.
+    */
+   private boolean animateInsertion(int position) {
+      if (adapter == null) {
+         return false;
+      }
+      if (!activated || cardAnimationRunning || position < 0 || position >= adapter.getCount()) {
+         adapter.notifyDataSetChanged();
+         return false;
+      }
+      pendingSelection = position;
+      adapter.notifyDataSetChanged();
+      final View inserted = activeCards.get(currentIndex);
+      performItemSelected();
+      if (inserted == null) {
+         return false;
+      }
+
+      cardAnimationRunning = true;
+      inserted.setAlpha(0f);
+      inserted.setTranslationY(getHeight() / 4f);
+      inserted.animate()
+            .alpha(1f)
+            .translationY(0f)
+            .setDuration(INSERTION_DURATION_MS)
+            .setInterpolator(new DecelerateInterpolator())
+            .withLayer()
+            .setListener(new AnimatorListenerAdapter() {
+               @Override
+               public void onAnimationEnd(Animator animation) {
+                  inserted.animate().setListener(null);
+                  resetCardTransform(inserted);
+                  cardAnimationRunning = false;
+               }
+            });
+      return true;
+   }
+
+   /**
+    * Lets the selected card drop out of view, then notifies the adapter so that the card is
+    * detached and the neighbour that takes its place slides in.
+    */
+   private boolean animateDeletion(final int position) {
+      if (adapter == null) {
+         return false;
+      }
+      final View deleted = activeCards.get(position);
+      if (!activated || cardAnimationRunning || position != currentIndex || deleted == null) {
+         adapter.notifyDataSetChanged();
+         return false;
+      }
+
+      cardAnimationRunning = true;
+      deletionPending = true;
+      prefetcher.cancel();
+      if (dragging) {
+         // Settle back on the deleted card, no other card can be bound until the adapter is notified
+         dragging = false;
+         snapToCard(SNAP_DURATION_MS);
+      }
+      deleted.animate()
+            .alpha(0f)
+            .translationY(getHeight() / 4f)
+            .setDuration(DELETION_DURATION_MS)
+            .setInterpolator(new AccelerateInterpolator())
+            .withLayer()
+            .setListener(new AnimatorListenerAdapter() {
+               @Override
+               public void onAnimationEnd(Animator animation) {
+                  deleted.animate().setListener(null);
+                  resetCardTransform(deleted);
+                  deletionPending = false;
+                  adapter.notifyDataSetChanged();
+                  slideInReplacement(position);
+               }
+            });
+      return true;
+   }
+
+   /** Slides the card that took the place of a deleted card in from the side it came from. */
+   private void slideInReplacement(int deletedPosition) {
+      final View replacement = activeCards.get(currentIndex);
+      if (replacement == null || !activated) {
+         cardAnimationRunning = false;
+         performItemSelected();
+         return;
+      }
+      int direction = currentIndex < deletedPosition ? -1 : 1;
+      replacement.setTranslationX(direction * getCardWidth());
+      replacement.animate()
+            .translationX(0f)
+            .setDuration(INSERTION_DURATION_MS)
+            .setInterpolator(new DecelerateInterpolator())
+            .withLayer()
+            .setListener(new AnimatorListenerAdapter() {
+               @Override
+               public void onAnimationEnd(Animator animation) {
+                  replacement.animate().setListener(null);
+                  resetCardTransform(replacement);
+                  cardAnimationRunning = false;
+               }
+            });
+      performItemSelected();
+   }
+
+   /**
+    * Stops the insertion or deletion animation in progress, if any, and undoes what it did to the
+    * attached cards. Cancelling an animation that has not started yet does not call its listener,
+    * so nothing is left waiting for its end.
+    * @return whether a deletion was still waiting for its animation to notify the adapter
+    */
+   private boolean stopCardAnimations() {
+      for (int i = 0; i < activeCards.size(); i++) {
+         View card = activeCards.valueAt(i);
+         card.animate().setListener(null);
+         card.animate().cancel();
+         resetCardTransform(card);
+      }
+      boolean deletionInterrupted = deletionPending;
+      cardAnimationRunning = false;
+      deletionPending = false;
+      return deletionInterrupted;
+   }
+
+   /** Undoes animated properties, so that the card can safely be rebound or recycled. */
+   private static void resetCardTransform(View card) {
+      card.setAlpha(1f);
+      card.setTranslationX(0f);
+      card.setTranslationY(0f);
+   }
+
    public CardScrollAdapter getAdapter() {
       return adapter;
    }
 
 
    public void setAdapter(CardScrollAdapter adapter) {
-      if (this.adapter != null) {
-         this.adapter.unregisterDataSetObserver(observer);
+      boolean deletionInterrupted = stopCardAnimations();
+      unregisterObserver();
+      if (deletionInterrupted) {
+         // The previous adapter is still owed the notification of the deletion
+         this.adapter.notifyDataSetChanged();
       }
       this.adapter = adapter;
-      container.removeAllViews();
+      detachAllCards();
+      prefetcher.recycleAll();
+      recycler.clear();
 
-      Display display = ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
-      Point realSize = new Point();
-      display.getRealSize(realSize);
+      removeCallbacks(restoreWindow);
+      pendingScrollShift = 0;
+      windowStart = 0;
 
       if (adapter != null) {
-         for (int i = 0; i < adapter.getCount(); i++) {
-            View card = adapter.getView(i, null, container);
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                    realSize.x,
-                    LayoutParams.MATCH_PARENT
-            );
-            container.addView(card, params);
+         // A view type count of 0 is how adapters opt out of recycling
+         recyclingEnabled = adapter.getViewTypeCount() > 0;
+         currentIndex = adapter.getHomePosition();
+         clampSelection();
+         selectionScrollPending = true;
+         if (activated) {
+            warmViewPool();
+            // The home card is bound first, the cards on either side of it follow in the next frame
+            populate(0);
+            postOnAnimation(restoreWindow);
+            registerObserver();
          }
-         adapter.registerDataSetObserver(observer);
       }
+      container.requestLayout();
+   }
+
+   /**
+    * Has the views of the cards that will come into view next to the selected one, and of the ones
+    * the prefetcher binds after them, built in the idle time of the next frames. The adapter is
+    * sampled over that range: the view type histogram of its {@link CardBuilder} items sizes the
+    * pool for each type.
+    */
+   private void warmViewPool() {
+      int count = adapter.getCount();
+      int first = Math.max(0, currentIndex - offscreenCardCount - 1);
+      int last = Math.min(count - 1, currentIndex + offscreenCardCount + 1);
+      SparseIntArray histogram = new SparseIntArray();
+      SparseArray<CardBuilder> prototypes = new SparseArray<>();
+      for (int position = first; position <= last; position++) {
+         Object item = position != currentIndex ? adapter.getItem(position) : null;
+         if (item instanceof CardBuilder) {
+            CardBuilder card = (CardBuilder) item;
+            int viewType = card.getItemViewType();
+            histogram.put(viewType, histogram.get(viewType) + 1);
+            if (prototypes.get(viewType) == null) {
+               prototypes.put(viewType, card);
+            }
+         }
+      }
+      for (int i = 0; i < histogram.size(); i++) {
+         viewPool.request(prototypes.get(histogram.keyAt(i)), histogram.valueAt(i));
+      }
+      prefetcher.schedule();
    }
 
-   private final DataSetObserver observer = new DataSetObserver() {
+   /**
+    * Sets how many cards are kept attached on each side of the selected card. Cards further away
+    * are detached and pooled, so memory use does not grow with the size of the adapter.
+    * @param count number of neighbouring cards to keep on each side, at least 0
+    */
+   public void setOffscreenCardCount(int count) {
+      if (count < 0) {
+         throw new IllegalArgumentException("Offscreen card count cannot be negative: " + count);
+      }
+      if (count != offscreenCardCount) {
+         offscreenCardCount = count;
+         recycler.setMaxScrapViews(2 * count + 2);
+         populate();
+      }
+   }
+
+   /** @return the number of cards kept attached on each side of the selected card */
+   public int getOffscreenCardCount() {
+      return offscreenCardCount;
+   }
+
+   private final AdapterObserver observer = new AdapterObserver();
+
+   private class AdapterObserver extends DataSetObserver implements CardScrollAdapter.ItemRangeObserver {
+      /** Set when an item range change was already applied, so that the change notification after it is skipped. */
+      private boolean itemRangeApplied = false;
+
+      @Override
+      public void onItemRangeInserted(int positionStart, int itemCount) {
+         itemRangeApplied = onItemsInserted(positionStart, itemCount);
+      }
+
+      @Override
+      public void onItemRangeRemoved(int positionStart, int itemCount) {
+         itemRangeApplied = onItemsRemoved(positionStart, itemCount);
+      }
+
+      @Override
+      public void onItemRangeChanged(int positionStart, int itemCount) {
+         itemRangeApplied = onItemsChanged(positionStart, itemCount);
+      }
+
       @Override
       public void onChanged() {
-         rebuild();
+         if (itemRangeApplied) {
+            itemRangeApplied = false;
+            return;
+         }
+         onDataSetChanged();
       }
-   };
+   }
 
-   private void rebuild() {
-      container.removeAllViews();
-      if (adapter != null) {
-         for (int i = 0; i < adapter.getCount(); i++) {
-            View card = adapter.getView(i, null, container);
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                    getWidth(),
-                    LayoutParams.MATCH_PARENT
-            );
-            container.addView(card, params);
+   /**
+    * Moves the attached cards at or after {@code positionStart} along by {@code itemCount} without
+    * rebinding them, and keeps the selection on the same card. When the items went in before the
+    * selection, the scroll offset grows by as many cards once the container is laid out again, so
+    * that the cards on screen do not move.
+    * @return whether the insertion was applied, or whether a full data change is needed instead
+    */
+   private boolean onItemsInserted(int positionStart, int itemCount) {
+      if (adapter == null || itemCount <= 0 || cardAnimationRunning || deletionPending) {
+         return false;
+      }
+      int count = adapter.getCount();
+      int oldCount = count - itemCount;
+      if (oldCount <= 0 || positionStart < 0 || positionStart > oldCount) {
+         return false;
+      }
+      prefetcher.recycleAll();
+
+      previousCards.clear();
+      for (int i = 0; i < activeCards.size(); i++) {
+         previousCards.put(activeCards.keyAt(i), activeCards.valueAt(i));
+      }
+      activeCards.clear();
+      for (int i = 0; i < previousCards.size(); i++) {
+         int position = previousCards.keyAt(i);
+         View card = previousCards.valueAt(i);
+         if (position >= positionStart) {
+            position += itemCount;
+            ((CardLayoutParams) card.getLayoutParams()).position = position;
+         }
+         activeCards.put(position, card);
+      }
+      previousCards.clear();
+
+      if (positionStart < windowStart) {
+         // Every card of the container moved along, its left edge follows them
+         windowStart += itemCount;
+         currentIndex += itemCount;
+      } else if (currentIndex >= positionStart) {
+         currentIndex += itemCount;
+         if (!selectionScrollPending) {
+            pendingScrollShift += itemCount * getCardWidth();
          }
-         // keep selection in bounds
-         if (currentIndex >= adapter.getCount()) {
-            currentIndex = adapter.getCount() - 1;
+      }
+      populate();
+      container.requestLayout();
+      return true;
+   }
+
+   /**
+    * Detaches the attached cards of the {@code itemCount} items removed at {@code positionStart},
+    * and moves the cards after them back without rebinding them. The selection stays on the same
+    * card; if it was removed, the scroller jumps to the card that took its place.
+    * @return whether the removal was applied, or whether a full data change is needed instead
+    */
+   private boolean onItemsRemoved(int positionStart, int itemCount) {
+      // A pending deletion is completed by the full data change
+      if (adapter == null || itemCount <= 0 || cardAnimationRunning || deletionPending) {
+         return false;
+      }
+      int count = adapter.getCount();
+      int positionEnd = positionStart + itemCount;
+      if (count <= 0 || positionStart < 0 || positionEnd > count + itemCount
+            || (positionStart < windowStart && positionEnd > windowStart)) {
+         // Cutting across the left edge of the window moves it by part of the removal only
+         return false;
+      }
+      prefetcher.recycleAll();
+
+      previousCards.clear();
+      for (int i = 0; i < activeCards.size(); i++) {
+         previousCards.put(activeCards.keyAt(i), activeCards.valueAt(i));
+      }
+      activeCards.clear();
+      for (int i = 0; i < previousCards.size(); i++) {
+         int position = previousCards.keyAt(i);
+         View card = previousCards.valueAt(i);
+         CardLayoutParams params = (CardLayoutParams) card.getLayoutParams();
+         if (position >= positionStart && position < positionEnd) {
+            container.removeView(card);
+            recycler.addScrapView(card, params.viewType);
+            continue;
          }
-         if (currentIndex < 0) {
-            currentIndex = 0;
+         if (position >= positionEnd) {
+            position -= itemCount;
+            params.position = position;
          }
-         smoothScrollTo(currentIndex * getWidth(), 0);
+         activeCards.put(position, card);
       }
+      previousCards.clear();
+
+      if (positionEnd <= windowStart) {
+         // Every card of the container moved back, its left edge follows them
+         windowStart -= itemCount;
+         currentIndex -= itemCount;
+      } else if (currentIndex >= positionEnd) {
+         currentIndex -= itemCount;
+         if (!selectionScrollPending) {
+            pendingScrollShift -= itemCount * getCardWidth();
+         }
+      } else if (currentIndex >= positionStart) {
+         currentIndex = Math.min(positionStart, count - 1);
+         selectionScrollPending = true;
+      }
+      populate();
+      container.requestLayout();
+      return true;
    }
 
-   public boolean isActivated() {
-      Log.e("OpenPrism", "Stub: isActivated()");
+   /**
+    * Binds the attached cards of the {@code itemCount} items changed at {@code positionStart} again
+    * in place, and leaves the other cards and the selection as they are.
+    * @return whether the change was applied, or whether a full data change is needed instead
+    */
+   private boolean onItemsChanged(int positionStart, int itemCount) {
+      if (adapter == null || itemCount <= 0 || cardAnimationRunning || deletionPending || positionStart < 0
+            || positionStart + itemCount > adapter.getCount()) {
+         return false;
+      }
+      // Cards prefetched for the changed items are out of date
+      prefetcher.recycleAll();
+      dataChangeInProgress = true;
+      for (int i = 0; i < activeCards.size(); i++) {
+         int position = activeCards.keyAt(i);
+         if (position < positionStart || position >= positionStart + itemCount) {
+            continue;
+         }
+         View card = activeCards.valueAt(i);
+         CardLayoutParams params = (CardLayoutParams) card.getLayoutParams();
+         int viewType = recyclingEnabled ? adapter.getItemViewType(position) : Adapter.IGNORE_ITEM_VIEW_TYPE;
+         boolean sameType = recyclingEnabled && viewType == params.viewType;
+         View bound = bindCard(position, viewType, sameType ? card : recycler.getScrapView(viewType));
+         if (bound != card) {
+            container.removeView(card);
+            if (sameType) {
+               CardBuilder.unbindView(card);
+            } else {
+               recycler.addScrapView(card, params.viewType);
+            }
+            container.addCard(bound);
+            activeCards.setValueAt(i, bound);
+         }
+      }
+      dataChangeInProgress = false;
+      populate();
       return true;
    }
 
+   /**
+    * Brings the attached cards in line with the adapter after a data change. Cards whose item is
+    * still present are rebound in place instead of being re-created, cards whose item went away
+    * are detached, and only the newly uncovered positions are bound from scratch. When the adapter
+    * has stable IDs, cards and the selection follow their item ID to its new position.
+    */
+   private void onDataSetChanged() {
+      if (adapter == null) {
+         return;
+      }
+      // A deletion the adapter is notified of early no longer has to wait for its animation
+      deletionPending = false;
+      dataChangeInProgress = true;
+      prefetcher.recycleAll();
+      int count = adapter.getCount();
+      int oldIndex = currentIndex;
+      boolean stableIds = adapter.hasStableIds();
+      if (stableIds) {
+         View selected = activeCards.get(currentIndex);
+         if (selected != null) {
+            long selectedId = ((CardLayoutParams) selected.getLayoutParams()).itemId;
+            int position = findItemPosition(selectedId, currentIndex, count, count);
+            if (position != AdapterView.INVALID_POSITION) {
+               currentIndex = position;
+            }
+         }
+      }
+      clampSelection();
+      int shift = currentIndex - oldIndex;
+
+      previousCards.clear();
+      for (int i = 0; i < activeCards.size(); i++) {
+         previousCards.put(activeCards.keyAt(i), activeCards.valueAt(i));
+      }
+      activeCards.clear();
+      for (int i = 0; i < previousCards.size(); i++) {
+         View card = previousCards.valueAt(i);
+         CardLayoutParams params = (CardLayoutParams) card.getLayoutParams();
+         int position = previousCards.keyAt(i);
+         if (stableIds) {
+            position = findItemPosition(params.itemId, position + shift, count, 2 * offscreenCardCount + 2);
+         }
+         if (position < 0 || position >= count || activeCards.get(position) != null
+               || !recyclingEnabled || adapter.getItemViewType(position) != params.viewType) {
+            container.removeView(card);
+            recycler.addScrapView(card, params.viewType);
+            continue;
+         }
+         View bound = bindCard(position, params.viewType, card);
+         if (bound != card) {
+            container.removeView(card);
+            CardBuilder.unbindView(card);
+            container.addCard(bound);
+         }
+         activeCards.put(position, bound);
+      }
+      previousCards.clear();
+
+      if (pendingSelection != AdapterView.INVALID_POSITION) {
+         currentIndex = pendingSelection;
+         pendingSelection = AdapterView.INVALID_POSITION;
+         clampSelection();
+      }
+      if (currentIndex != oldIndex) {
+         // Applied once the container has been laid out with the new item count
+         selectionScrollPending = true;
+      }
+      populate();
+      container.requestLayout();
+      dataChangeInProgress = false;
+   }
+
+   /**
+    * Searches for the position of the given item ID, starting at {@code hint} and moving outwards.
+    * @return the position, or {@code INVALID_POSITION} if it is not within {@code maxDistance}
+    */
+   private int findItemPosition(long itemId, int hint, int count, int maxDistance) {
+      if (count == 0) {
+         return AdapterView.INVALID_POSITION;
+      }
+      hint = Math.max(0, Math.min(count - 1, hint));
+      for (int distance = 0; distance <= maxDistance; distance++) {
+         int after = hint + distance;
+         int before = hint - distance;
+         if (after >= count && before < 0) {
+            break;
+         }
+         if (after < count && adapter.getItemId(after) == itemId) {
+            return after;
+         }
+         if (distance > 0 && before >= 0 && adapter.getItemId(before) == itemId) {
+            return before;
+         }
+      }
+      return AdapterView.INVALID_POSITION;
+   }
+
+   private void clampSelection() {
+      // keep selection in bounds
+      if (currentIndex >= adapter.getCount()) {
+         currentIndex = adapter.getCount() - 1;
+      }
+      if (currentIndex < 0) {
+         currentIndex = 0;
+      }
+   }
+
+   /**
+    * Attaches the cards within the window around the selected card, and detaches the ones that
+    * fell out of it into the recycler.
+    */
+   private void populate() {
+      populate(offscreenCardCount);
+   }
+
+   private void populate(int offscreenCount) {
+      if (adapter == null || !activated || deletionPending) {
+         return;
+      }
+      updateWindow();
+      int count = adapter.getCount();
+      int first = Math.max(0, currentIndex - offscreenCount);
+      int last = Math.min(count - 1, currentIndex + offscreenCount);
+      int width = getCardWidth();
+      int firstVisible = currentIndex;
+      int lastVisible = currentIndex;
+      if (width > 0 && !selectionScrollPending && pendingScrollShift == 0) {
+         // Keep the cards on screen attached while a scroll passes through them
+         int scrollX = getScrollX();
+         firstVisible = windowStart + scrollX / width;
+         lastVisible = windowStart + (scrollX + width - 1) / width;
+         first = Math.max(0, Math.min(first, firstVisible));
+         last = Math.min(count - 1, Math.max(last, lastVisible));
+      }
+
+      for (int i = activeCards.size() - 1; i >= 0; i--) {
+         int position = activeCards.keyAt(i);
+         if (position < first || position > last) {
+            View card = activeCards.valueAt(i);
+            activeCards.removeAt(i);
+            container.removeView(card);
+            recycler.addScrapView(card, ((CardLayoutParams) card.getLayoutParams()).viewType);
+         }
+      }
+      boolean countPrefetch = activeCards.size() > 0 && !dataChangeInProgress;
+      for (int position = first; position <= last; position++) {
+         if (activeCards.get(position) == null) {
+            View card = prefetcher.take(position, countPrefetch);
+            if (card == null) {
+               int viewType = recyclingEnabled ? adapter.getItemViewType(position) : Adapter.IGNORE_ITEM_VIEW_TYPE;
+               card = bindCard(position, viewType, recycler.getScrapView(viewType));
+            }
+            container.addCard(card);
+            activeCards.put(position, card);
+         } else if (position >= firstVisible && position <= lastVisible) {
+            // Its images may have been released under memory pressure while it was off screen
+            CardBuilder.restoreImages(activeCards.get(position));
+         }
+      }
+      prefetcher.schedule();
+   }
+
+   /**
+    * Moves the window of positions the container spans so that the selected card stays well within
+    * it. A view cannot be wider than {@link View#MEASURED_SIZE_MASK}, about 26,000 cards of 640
+    * pixels, so the container spans at most that many cards around the selection instead of every
+    * card of the adapter. When the window moves, the scroll offset moves by as many cards once the
+    * container is laid out again, so that the cards on screen do not move; if they fall out of the
+    * window, the scroller jumps to the selected card instead.
+    */
+   private void updateWindow() {
+      int count = adapter.getCount();
+      int capacity = getWindowCapacity();
+      int start = windowStart;
+      if (count <= capacity) {
+         start = 0;
+      } else {
+         int margin = capacity / 4;
+         if (currentIndex - start < margin || start + capacity - 1 - currentIndex < margin) {
+            start = currentIndex - capacity / 2;
+         }
+         start = Math.max(0, Math.min(count - capacity, start));
+      }
+      if (start != windowStart) {
+         int width = getCardWidth();
+         int shift = (start - windowStart) * width;
+         int scrollX = getScrollX() + pendingScrollShift - shift;
+         if (scrollX < 0 || scrollX > (Math.min(count - start, capacity) - 1) * width) {
+            selectionScrollPending = true;
+         } else if (!selectionScrollPending) {
+            pendingScrollShift -= shift;
+         }
+         windowStart = start;
+         container.requestLayout();
+      }
+   }
+
+   /** @return whether the card at the given position is selected, or shown by the current scroll offset */
+   private boolean isOnScreen(int position) {
+      if (position == currentIndex) {
+         return true;
+      }
+      int width = getCardWidth();
+      if (width == 0 || selectionScrollPending || pendingScrollShift != 0) {
+         return false;
+      }
+      int scrollX = getScrollX();
+      return position >= windowStart + scrollX / width && position <= windowStart + (scrollX + width - 1) / width;
+   }
+
+   /** @return how many cards the container can span without exceeding the largest size of a view */
+   private int getWindowCapacity() {
+      return Math.max(1, View.MEASURED_SIZE_MASK / Math.max(1, getCardWidth()));
+   }
+
+   /** @return the scroll offset at which the card at the given position fills the scroller */
+   private int getScrollXForPosition(int position) {
+      return (position - windowStart) * getCardWidth();
+   }
+
+   /**
+    * Gets the card for a position from the adapter and tags it with its position, view type and
+    * item ID. Cards bound off screen leave the sizing of their text to a background thread.
+    */
+   private View bindCard(int position, int viewType, View convertView) {
+      long start = System.nanoTime();
+      View card;
+      CardTextPreparer.setDeferSizing(!isOnScreen(position));
+      try {
+         card = adapter.getView(position, convertView, container);
+      } finally {
+         CardTextPreparer.setDeferSizing(false);
+      }
+      prefetcher.recordBindTime(viewType, System.nanoTime() - start);
+      long itemId = adapter.getItemId(position);
+      ViewGroup.LayoutParams params = card.getLayoutParams();
+      if (params instanceof CardLayoutParams) {
+         CardLayoutParams cardParams = (CardLayoutParams) params;
+         cardParams.position = position;
+         cardParams.viewType = viewType;
+         cardParams.itemId = itemId;
+      } else {
+         card.setLayoutParams(new CardLayoutParams(position, viewType, itemId));
+      }
+      return card;
+   }
+
+   private void detachAllCards() {
+      container.removeAllViews();
+      for (int i = 0; i < activeCards.size(); i++) {
+         View card = activeCards.valueAt(i);
+         recycler.addScrapView(card, ((CardLayoutParams) card.getLayoutParams()).viewType);
+      }
+      activeCards.clear();
+   }
+
+   /** @return the width of a single card, which is the width of the scroller once it is measured */
+   private int getCardWidth() {
+      if (cardWidth > 0) {
+         return cardWidth;
+      }
+      if (getWidth() > 0) {
+         return getWidth();
+      }
+      Point realSize = new Point();
+      getDefaultDisplay().getRealSize(realSize);
+      return realSize.x;
+   }
+
+   private Display getDefaultDisplay() {
+      return ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+   }
+
+   /**
+    * Enables or disables binding the cards just outside the window ahead of time, in the idle part
+    * of frames, so that a swipe does not have to wait for them. Enabled by default.
+    */
+   public void setPrefetchEnabled(boolean enabled) {
+      prefetcher.setEnabled(enabled);
+   }
+
+   /** @return how many cards entering the window were already bound by the prefetcher */
+   public int getPrefetchHitCount() {
+      return prefetcher.hitCount;
+   }
+
+   /** @return how many cards entering the window had to be bound on the spot */
+   public int getPrefetchMissCount() {
+      return prefetcher.missCount;
+   }
+
+   /**
+    * Enables or disables keeping the display lists of the attached cards other than the selected one
+    * on API 29 and up, recorded once and replayed as the cards scroll until their content changes.
+    * Enabled by default; has no effect below API 29 or without hardware acceleration.
+    */
+   public void setDisplayListCachingEnabled(boolean enabled) {
+      container.displayListCachingEnabled = enabled;
+      if (!enabled && container.displayLists != null) {
+         container.displayLists.discardAll();
+      }
+      container.invalidate();
+   }
+
+   /** @return how many times a card was drawn by replaying its kept display list */
+   public int getDisplayListHitCount() {
+      return container.displayLists != null ? container.displayLists.hitCount : 0;
+   }
+
+   /** @return how many times the display list of a card had to be recorded, as it was missing or outdated */
+   public int getDisplayListMissCount() {
+      return container.displayLists != null ? container.displayLists.missCount : 0;
+   }
+
+   /** @return how many attached cards currently have a kept display list */
+   public int getDisplayListCacheSize() {
+      return container.displayLists != null ? container.displayLists.size() : 0;
+   }
+
+   /** @return the approximate memory used by the kept display lists, in bytes */
+   public long getDisplayListCacheMemoryUsage() {
+      return container.displayLists != null ? container.displayLists.getMemoryUsage() : 0;
+   }
+
+   /** @return whether the scroller is activated, which it is until {@link #deactivate()} is called */
+   public boolean isActivated() {
+      return activated;
+   }
+
    public void nextCard() {
-      if (currentIndex < adapter.getCount() - 1) {
+      navigationDirection = 1;
+      if (!deletionPending && currentIndex < adapter.getCount() - 1) {
          currentIndex++;
-         smoothScrollTo(currentIndex * getWidth(), 0);
+         populate();
+         snapToCard(SNAP_DURATION_MS);
          performItemSelected();
       }
    }
 
    public void prevCard() {
-      if (currentIndex > 0) {
+      navigationDirection = -1;
+      if (!deletionPending && currentIndex > 0) {
          currentIndex--;
-         smoothScrollTo(currentIndex * getWidth(), 0);
+         populate();
+         snapToCard(SNAP_DURATION_MS);
          performItemSelected();
       }
    }
@@ -218,17 +1032,26 @@ public class CardScrollView extends HorizontalScrollView {
    }
 
    public View getSelectedView() {
-      return container.getChildAt(currentIndex);
+      return activeCards.get(currentIndex);
    }
 
    public long getSelectedItemId() {
-      return currentIndex;
+      if (adapter == null || currentIndex < 0 || currentIndex >= adapter.getCount()) {
+         return AdapterView.INVALID_ROW_ID;
+      }
+      return adapter.getItemId(currentIndex);
    }
 
    public void setSelection(int position) {
+      if (deletionPending) {
+         // Applied once the adapter is notified of the deletion
+         pendingSelection = position;
+         return;
+      }
       currentIndex = position;
       if (position >= 0 && position < adapter.getCount()) {
-         smoothScrollTo(position * getWidth(), 0);
+         populate();
+         snapToCard(SNAP_DURATION_MS);
       }
    }
 
@@ -258,8 +1081,62 @@ public class CardScrollView extends HorizontalScrollView {
       Log.e("OpenPrism", "Stub: setEmptyView(View)");
    }
 
+   @Override
+   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+      if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+         cardWidth = MeasureSpec.getSize(widthMeasureSpec);
+      }
+      super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+   }
+
    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
       super.onLayout(changed, left, top, right, bottom);
+      if (changed || selectionScrollPending) {
+         // Selection may have been set before the card width or item count was known
+         selectionScrollPending = false;
+         pendingScrollShift = 0;
+         snapScroller.abortAnimation();
+         scrollTo(getScrollXForPosition(currentIndex), 0);
+      } else if (pendingScrollShift != 0) {
+         // Items were inserted before the selection, or the window moved: follow the cards to where they moved
+         int shift = pendingScrollShift;
+         pendingScrollShift = 0;
+         boolean snapping = !snapScroller.isFinished();
+         int remaining = snapping ? snapScroller.getDuration() - snapScroller.timePassed() : 0;
+         snapScroller.abortAnimation();
+         scrollTo(getScrollX() + shift, 0);
+         if (snapping) {
+            snapToCard(Math.max(SNAP_MIN_DURATION_MS, remaining));
+         }
+      }
+   }
+
+   @Override
+   protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+      super.onScrollChanged(l, t, oldl, oldt);
+      populate();
+      updatePositionScroller(l);
+   }
+
+   /**
+    * Moves the position scroller along with the scroll offset, in fractions of a card. It is only
+    * started again when the item count changed; otherwise this just moves its thumb.
+    */
+   private void updatePositionScroller(int scrollX) {
+      int count = adapter != null ? adapter.getCount() : 0;
+      int width = getCardWidth();
+      if (count < 2 || width == 0 || !activated) {
+         return;
+      }
+      float position = windowStart + (scrollX + pendingScrollShift) / (float) width;
+      if (positionScroller == null || positionScroller.getMax() != count - 1) {
+         if (slider == null) {
+            slider = Slider.from(this);
+         }
+         positionScroller = slider.startScroller(count - 1, position);
+      } else {
+         positionScroller.setPosition(position);
+      }
    }
 
    protected void initializeScrollbars(TypedArray a) {
@@ -312,50 +1189,300 @@ public class CardScrollView extends HorizontalScrollView {
       return super.onKeyDown(keyCode, event);
    }
 
+   @Override
+   public boolean onInterceptTouchEvent(MotionEvent event) {
+      int action = event.getActionMasked();
+      if (action == MotionEvent.ACTION_DOWN) {
+         startTouch(event);
+      } else if (action == MotionEvent.ACTION_MOVE && !dragging) {
+         trackVelocity(event);
+         startDragIfNeeded(event);
+      }
+      return dragging;
+   }
+
    @Override
    public boolean onTouchEvent(MotionEvent event) {
-      if (event.getAction() == MotionEvent.ACTION_DOWN) {
-         startTouchX = event.getX();
-         startTouchY = event.getY();
-         return true;
+      switch (event.getActionMasked()) {
+         case MotionEvent.ACTION_DOWN:
+            if (velocityTracker == null) {
+               // Not seen by onInterceptTouchEvent() yet
+               startTouch(event);
+            }
+            return true;
+         case MotionEvent.ACTION_MOVE:
+            trackVelocity(event);
+            if (!dragging) {
+               startDragIfNeeded(event);
+            }
+            if (dragging) {
+               scrollerConsumedEvent = true;
+               // Follow the finger 1:1 within the bounds of the cards
+               int maxScrollX = Math.max(0, container.getWidth() - getWidth());
+               int targetX = Math.round(getScrollX() + lastTouchX - event.getX());
+               scrollTo(Math.max(0, Math.min(maxScrollX, targetX)), 0);
+               lastTouchX = event.getX();
+            }
+            return true;
+         case MotionEvent.ACTION_UP:
+            trackVelocity(event);
+            if (dragging) {
+               scrollerConsumedEvent = true;
+               velocityTracker.computeCurrentVelocity(1000, maximumFlingVelocity);
+               // Positive velocity moves towards higher positions
+               endDrag(-velocityTracker.getXVelocity());
+            } else if (event.getY() - startTouchY > 50) { // Swiping down closes the activity
+               scrollerConsumedEvent = true;
+               ((android.app.Activity) getContext()).finish();
+            } else {
+               // Treat as a tap if there was no significant movement
+               scrollerConsumedEvent = itemClickListener != null;
+               performClick();
+            }
+            recycleVelocityTracker();
+            return true;
+         case MotionEvent.ACTION_CANCEL:
+            if (dragging) {
+               scrollerConsumedEvent = true;
+               endDrag(0);
+            }
+            recycleVelocityTracker();
+            return true;
       }
-      if (event.getAction() == MotionEvent.ACTION_UP) {
-         float deltaX = startTouchX - event.getX(); // Swipe right = positive delta
-         if (Math.abs(event.getX() - startTouchX) > 50) {
-            // Smooth snap to closest card position
-            float scrollX = getScrollX();
-            float newScrollX = scrollX + deltaX;
-            int cardIndex = Math.round(newScrollX / (float) getWidth());
-            // Clamp to valid range
-            if (cardIndex < 0) cardIndex = 0;
-            if (cardIndex >= adapter.getCount()) cardIndex = adapter.getCount() - 1;
-            Log.d("CardScrollView", "Snapping to card index " + cardIndex);
-            currentIndex = cardIndex;
-            smoothScrollTo(currentIndex * getWidth(), 0);
-            performItemSelected();
-         } else if (event.getY() - startTouchY > 50) { // Swiping down closes the activity
-            ((android.app.Activity) getContext()).finish();
+      return super.onTouchEvent(event);
+   }
+
+   private void startTouch(MotionEvent event) {
+      startTouchX = event.getX();
+      startTouchY = event.getY();
+      lastTouchX = startTouchX;
+      recycleVelocityTracker();
+      trackVelocity(event);
+      // Catching a snapping card continues the drag from where it is
+      dragging = !snapScroller.isFinished();
+      snapScroller.abortAnimation();
+   }
+
+   private void startDragIfNeeded(MotionEvent event) {
+      if (deletionPending) {
+         return;
+      }
+      float deltaX = event.getX() - startTouchX;
+      float deltaY = event.getY() - startTouchY;
+      if (Math.abs(deltaX) > touchSlop && Math.abs(deltaX) > Math.abs(deltaY)) {
+         dragging = true;
+         lastTouchX = event.getX();
+         navigationDirection = deltaX < 0 ? 1 : -1;
+         prefetcher.schedule();
+         if (getParent() != null) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+         }
+      }
+   }
+
+   private void trackVelocity(MotionEvent event) {
+      if (velocityTracker == null) {
+         velocityTracker = VelocityTracker.obtain();
+      }
+      velocityTracker.addMovement(event);
+   }
+
+   private void recycleVelocityTracker() {
+      if (velocityTracker != null) {
+         velocityTracker.recycle();
+         velocityTracker = null;
+      }
+   }
+
+   /**
+    * Picks the card to settle on after a drag and snaps to it. A fling is projected with the
+    * scroller's physics and may travel across several cards, but always moves at least one card
+    * in the direction of the fling.
+    * @param velocity horizontal release velocity in pixels per second, positive towards higher positions
+    */
+   private void endDrag(float velocity) {
+      dragging = false;
+      int width = getCardWidth();
+      int scrollX = getScrollX();
+      int target;
+      if (Math.abs(velocity) > minimumFlingVelocity) {
+         int maxScrollX = Math.max(0, container.getWidth() - getWidth());
+         snapScroller.fling(scrollX, 0, Math.round(velocity), 0, 0, maxScrollX, 0, 0);
+         int finalX = snapScroller.getFinalX();
+         snapScroller.abortAnimation();
+         target = windowStart + Math.round(finalX / (float) width);
+         if (velocity > 0) {
+            target = Math.max(target, windowStart + scrollX / width + 1);
          } else {
-            // Treat as a tap if there was no significant movement
-            performClick();
+            target = Math.min(target, windowStart + (scrollX + width - 1) / width - 1);
          }
-         return true;
+         navigationDirection = velocity > 0 ? 1 : -1;
+      } else {
+         target = windowStart + Math.round(scrollX / (float) width);
+      }
+      target = Math.max(0, Math.min(adapter != null ? adapter.getCount() - 1 : 0, target));
+
+      int distance = Math.abs(getScrollXForPosition(target) - scrollX);
+      int duration = SNAP_DURATION_MS;
+      if (Math.abs(velocity) > minimumFlingVelocity) {
+         // A decelerating snap starts at twice its average speed, so this matches the release velocity
+         duration = Math.round(2000f * distance / Math.abs(velocity));
+      }
+      duration = Math.max(SNAP_MIN_DURATION_MS, Math.min(SNAP_MAX_DURATION_MS, duration));
+
+      boolean changed = target != currentIndex;
+      currentIndex = target;
+      populate();
+      snapToCard(duration);
+      if (changed) {
+         performItemSelected();
+      }
+   }
+
+   /** Scrolls to the selected card, one step per frame from {@link #computeScroll()}. */
+   private void snapToCard(int durationMs) {
+      int dx = getScrollXForPosition(currentIndex) - getScrollX();
+      snapScroller.abortAnimation();
+      if (dx != 0) {
+         snapScroller.startScroll(getScrollX(), 0, dx, 0, durationMs);
+         postInvalidateOnAnimation();
+      }
+   }
+
+   @Override
+   public void computeScroll() {
+      if (snapScroller.computeScrollOffset()) {
+         scrollTo(snapScroller.getCurrX(), 0);
+         postInvalidateOnAnimation();
+         return;
+      }
+      super.computeScroll();
+   }
+
+   /**
+    * Adds a {@link GestureDetector} to the input pipeline. Motion events that the scroller does not
+    * act upon are passed to the registered detectors in the order they were added, and then to the
+    * activity, until one of them consumes the event. Each event reaches each of them at most once,
+    * so a registered detector must not also be fed from {@link Activity#onGenericMotionEvent(MotionEvent)}.
+    * <p>
+    * Touch events reach the activity through the pipeline. Generic motion events that no stage
+    * before it consumed are reported as unhandled instead, and the framework passes them on to the
+    * activity and the views above the scroller itself.
+    */
+   public void addGestureDetector(GestureDetector detector) {
+      if (detector != null && !gestureDetectors.contains(detector)) {
+         gestureDetectors.add(detector);
+      }
+   }
+
+   /** Removes a {@link GestureDetector} added with {@link #addGestureDetector(GestureDetector)}. */
+   public void removeGestureDetector(GestureDetector detector) {
+      gestureDetectors.remove(detector);
+   }
+
+   /**
+    * Sets whether touch events that nothing before it consumed are passed to
+    * {@link Activity#onGenericMotionEvent(MotionEvent)} as the last stage of the input pipeline.
+    * Enabled by default. Unhandled generic motion events are left to the framework either way.
+    */
+   public void setActivityInputEnabled(boolean enabled) {
+      this.activityInputEnabled = enabled;
+   }
+
+   /** @return the time spent in the given input stage since the last reset, in nanoseconds */
+   public long getInputStageTimeNanos(InputStage stage) {
+      return inputStageTimeNanos[stage.ordinal()];
+   }
+
+   /** @return the number of events the given input stage received since the last reset */
+   public int getInputStageEventCount(InputStage stage) {
+      return inputStageEventCounts[stage.ordinal()];
+   }
+
+   /** Resets the input stage timings and event counts. */
+   public void resetInputStageStats() {
+      for (int i = 0; i < inputStageTimeNanos.length; i++) {
+         inputStageTimeNanos[i] = 0;
+         inputStageEventCounts[i] = 0;
       }
-      return super.onTouchEvent(event);
    }
 
    @Override
    public boolean dispatchTouchEvent(MotionEvent event) {
+      scrollerConsumedEvent = false;
+      long start = System.nanoTime();
       boolean handled = super.dispatchTouchEvent(event);
-      boolean activityHandled = ((android.app.Activity) getContext()).onGenericMotionEvent(event);
-      return handled || activityHandled;
+      recordInputStage(InputStage.SCROLLER, start);
+      boolean pipelineHandled = dispatchInputPipeline(event, scrollerConsumedEvent, true);
+      return handled || pipelineHandled;
    }
 
    @Override
    public boolean dispatchGenericMotionEvent(MotionEvent event) {
+      long start = System.nanoTime();
       boolean handled = super.dispatchGenericMotionEvent(event);
-      boolean activityHandled = ((android.app.Activity) getContext()).onGenericMotionEvent(event);
-      return handled || activityHandled;
+      recordInputStage(InputStage.SCROLLER, start);
+      // The framework hands unhandled generic motion events to Activity.onGenericMotionEvent()
+      // itself, so the pipeline stops before the activity stage
+      boolean pipelineHandled = dispatchInputPipeline(event, handled, false);
+      return handled || pipelineHandled;
+   }
+
+   /**
+    * Passes an event on to the gesture detectors and then the activity, stopping at the first stage
+    * that consumes it. Events the scroller consumed go no further; when the scroller takes over a
+    * stream the later stages had already been given, they get a single {@code ACTION_CANCEL}
+    * instead and nothing more of that stream.
+    * @param toActivity whether the activity is a stage of the pipeline for this event
+    * @return whether a stage consumed the event
+    */
+   private boolean dispatchInputPipeline(MotionEvent event, boolean scrollerConsumed, boolean toActivity) {
+      int action = event.getActionMasked();
+      if (action == MotionEvent.ACTION_DOWN) {
+         inputStreamTakenOver = false;
+      }
+      boolean consumed = scrollerConsumed;
+      if (inputStreamTakenOver) {
+         // The rest of a stream the scroller took over
+      } else if (!scrollerConsumed) {
+         consumed = dispatchToLaterStages(event, toActivity);
+      } else if (action == MotionEvent.ACTION_MOVE || action == MotionEvent.ACTION_UP) {
+         inputStreamTakenOver = true;
+         MotionEvent cancel = MotionEvent.obtain(event);
+         cancel.setAction(MotionEvent.ACTION_CANCEL);
+         dispatchToLaterStages(cancel, toActivity);
+         cancel.recycle();
+      }
+      if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+         inputStreamTakenOver = false;
+      }
+      return consumed;
+   }
+
+   private boolean dispatchToLaterStages(MotionEvent event, boolean toActivity) {
+      if (!gestureDetectors.isEmpty()) {
+         long start = System.nanoTime();
+         boolean consumed = false;
+         for (int i = 0; i < gestureDetectors.size() && !consumed; i++) {
+            consumed = gestureDetectors.get(i).onMotionEvent(event);
+         }
+         recordInputStage(InputStage.GESTURE_DETECTORS, start);
+         if (consumed) {
+            return true;
+         }
+      }
+      if (toActivity && activityInputEnabled && getContext() instanceof Activity) {
+         long start = System.nanoTime();
+         boolean consumed = ((Activity) getContext()).onGenericMotionEvent(event);
+         recordInputStage(InputStage.ACTIVITY, start);
+         return consumed;
+      }
+      return false;
+   }
+
+   private void recordInputStage(InputStage stage, long startNanos) {
+      inputStageTimeNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+      inputStageEventCounts[stage.ordinal()]++;
    }
 
 
@@ -366,8 +1493,8 @@ public class CardScrollView extends HorizontalScrollView {
    }
 
    private void performItemClick() {
-      if (itemClickListener != null && adapter != null && currentIndex < adapter.getCount()) {
-         View clickedView = container.getChildAt(currentIndex);
+      if (itemClickListener != null && adapter != null && !deletionPending && currentIndex < adapter.getCount()) {
+         View clickedView = activeCards.get(currentIndex);
          long id = adapter.getItemId(currentIndex);
          itemClickListener.onItemClick(null, clickedView, currentIndex, id);
       }
@@ -375,7 +1502,7 @@ public class CardScrollView extends HorizontalScrollView {
 
    private void performItemSelected() {
       if (itemSelectedListener != null && adapter != null && currentIndex < adapter.getCount()) {
-         View selectedView = container.getChildAt(currentIndex);
+         View selectedView = activeCards.get(currentIndex);
          long id = adapter.getItemId(currentIndex);
          itemSelectedListener.onItemSelected(null, selectedView, currentIndex, id);
       }
@@ -385,6 +1512,336 @@ public class CardScrollView extends HorizontalScrollView {
       return super.dispatchGenericFocusedEvent(event);
    }
 
+   @Override
+   protected void onAttachedToWindow() {
+      super.onAttachedToWindow();
+      getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+   }
+
+   @Override
+   protected void onDetachedFromWindow() {
+      prefetcher.cancel();
+      viewPool.clear();
+      getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+      super.onDetachedFromWindow();
+   }
+
+   private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+      @Override
+      public void onTrimMemory(int level) {
+         trimMemory(level);
+      }
+
+      @Override
+      public void onLowMemory() {
+         trimMemory(TRIM_MEMORY_COMPLETE);
+      }
+
+      @Override
+      public void onConfigurationChanged(Configuration newConfig) {
+      }
+   };
+
+   /**
+    * Gives back memory held for cards that are not on screen, in steps that follow the trim level:
+    * <ul>
+    *     <li>any level: prefetched, recycled and pre-built cards are dropped, and so are the
+    *     display lists kept for the cards, </li>
+    *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and
+    *     {@link ComponentCallbacks2#TRIM_MEMORY_MODERATE} and up: the images of attached cards that
+    *     are off screen are released too, and reloaded when they scroll back into view, and
+    *     prepared card texts are dropped, </li>
+    *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL} and
+    *     {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}: every card that is not on screen is
+    *     detached, the window fills up again on the next scroll. </li>
+    * </ul>
+    */
+   private void trimMemory(int level) {
+      prefetcher.cancel();
+      prefetcher.recycleAll();
+      recycler.clear();
+      viewPool.clear();
+      CardImageCache.trimMemory(level);
+      if (container.displayLists != null) {
+         container.displayLists.discardAll();
+      }
+      boolean critical = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+              || level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+      boolean moderate = critical || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+              || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+      if (moderate) {
+         CardTextPreparer.clear();
+      }
+      if (!moderate || cardAnimationRunning) {
+         return;
+      }
+      int width = getCardWidth();
+      int firstVisible = windowStart + getScrollX() / width;
+      int lastVisible = windowStart + (getScrollX() + width - 1) / width;
+      for (int i = activeCards.size() - 1; i >= 0; i--) {
+         int position = activeCards.keyAt(i);
+         if (position == currentIndex || (position >= firstVisible && position <= lastVisible)) {
+            continue;
+         }
+         View card = activeCards.valueAt(i);
+         CardBuilder.releaseImages(card);
+         if (critical) {
+            card.animate().cancel();
+            activeCards.removeAt(i);
+            container.removeView(card);
+         }
+      }
+   }
+
+   /**
+    * Binds and measures the cards that are next to enter the window, using the time left at the end
+    * of a frame, so that a swipe finds them ready instead of binding them on the spot. The views
+    * requested from the {@link CardViewPool} are built first, then the card in the direction of the
+    * last navigation goes first, and a build or bind is only started when its estimated duration
+    * still fits before the frame deadline.
+    */
+   private class CardPrefetcher implements Choreographer.FrameCallback, Runnable {
+      private final SparseArray<View> prefetchedCards = new SparseArray<>();
+      /** Running average of the bind duration per view type. */
+      private final SparseLongArray bindTimeNanos = new SparseLongArray();
+      private long frameIntervalNanos;
+      private long frameTimeNanos;
+      private boolean enabled = true;
+      private boolean scheduled = false;
+      int hitCount = 0;
+      int missCount = 0;
+
+      void setEnabled(boolean enabled) {
+         this.enabled = enabled;
+         if (!enabled) {
+            cancel();
+            recycleAll();
+         }
+      }
+
+      void schedule() {
+         if (enabled && activated && !scheduled && adapter != null && !deletionPending) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+         }
+      }
+
+      void cancel() {
+         if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            removeCallbacks(this);
+            scheduled = false;
+         }
+      }
+
+      @Override
+      public void doFrame(long frameTimeNanos) {
+         this.frameTimeNanos = frameTimeNanos;
+         // Runs once the traversal of this frame is done
+         post(this);
+      }
+
+      @Override
+      public void run() {
+         scheduled = false;
+         if (adapter == null || container.getHeight() == 0 || deletionPending) {
+            return;
+         }
+         if (frameIntervalNanos == 0) {
+            float refreshRate = getDefaultDisplay().getRefreshRate();
+            frameIntervalNanos = (long) (1000000000 / (refreshRate >= 30 ? refreshRate : 60));
+         }
+         long deadlineNanos = frameTimeNanos + frameIntervalNanos;
+         int first = currentIndex - offscreenCardCount - 1;
+         int last = currentIndex + offscreenCardCount + 1;
+         int ahead = navigationDirection >= 0 ? last : first;
+         int behind = navigationDirection >= 0 ? first : last;
+
+         for (int i = prefetchedCards.size() - 1; i >= 0; i--) {
+            int position = prefetchedCards.keyAt(i);
+            if (position != first && position != last) {
+               recycle(prefetchedCards.valueAt(i));
+               prefetchedCards.removeAt(i);
+            }
+         }
+         if (!viewPool.build(deadlineNanos, frameIntervalNanos / 2)
+               || !prefetch(ahead, deadlineNanos) || !prefetch(behind, deadlineNanos)) {
+            // Out of time in this frame, continue in the next one
+            schedule();
+         }
+      }
+
+      /** @return false if there was not enough time left to prefetch the card */
+      private boolean prefetch(int position, long deadlineNanos) {
+         if (position < 0 || position >= adapter.getCount()
+               || activeCards.get(position) != null || prefetchedCards.get(position) != null) {
+            return true;
+         }
+         int viewType = recyclingEnabled ? adapter.getItemViewType(position) : Adapter.IGNORE_ITEM_VIEW_TYPE;
+         // Without any measurement yet, only start a bind with at least half a frame left
+         long estimateNanos = bindTimeNanos.get(viewType, frameIntervalNanos / 2);
+         if (System.nanoTime() + estimateNanos > deadlineNanos) {
+            return false;
+         }
+         View card = bindCard(position, viewType, recycler.getScrapView(viewType));
+         card.measure(MeasureSpec.makeMeasureSpec(getCardWidth(), MeasureSpec.EXACTLY),
+               MeasureSpec.makeMeasureSpec(container.getHeight(), MeasureSpec.EXACTLY));
+         prefetchedCards.put(position, card);
+         return true;
+      }
+
+      void recordBindTime(int viewType, long durationNanos) {
+         long average = bindTimeNanos.get(viewType, 0);
+         bindTimeNanos.put(viewType, average == 0 ? durationNanos : (3 * average + durationNanos) / 4);
+      }
+
+      /**
+       * Hands out the prefetched card for a position that enters the window.
+       * @param count whether to count the outcome as a prefetch hit or miss
+       * @return the prefetched card, or {@code null} if there is none
+       */
+      View take(int position, boolean count) {
+         View card = prefetchedCards.get(position);
+         if (card != null) {
+            prefetchedCards.remove(position);
+         }
+         if (count) {
+            if (card != null) {
+               hitCount++;
+            } else {
+               missCount++;
+            }
+         }
+         return card;
+      }
+
+      void recycleAll() {
+         for (int i = 0; i < prefetchedCards.size(); i++) {
+            recycle(prefetchedCards.valueAt(i));
+         }
+         prefetchedCards.clear();
+      }
+
+      private void recycle(View card) {
+         recycler.addScrapView(card, ((CardLayoutParams) card.getLayoutParams()).viewType);
+      }
+   }
+
+   /**
+    * Lays out the attached cards at their adapter positions, one card width apart, counted from
+    * {@link #windowStart}.
+    */
+   private class CardContainer extends ViewGroup {
+      /** Display lists of the cards other than the selected one, only kept on API 29 and up. */
+      final CardDisplayListCache displayLists =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? new CardDisplayListCache() : null;
+      boolean displayListCachingEnabled = true;
+
+      CardContainer(Context context) {
+         super(context);
+      }
+
+      /** Attaches a card that was tagged by {@link #bindCard(int, int, View)}. */
+      void addCard(View card) {
+         addView(card, card.getLayoutParams());
+      }
+
+      @Override
+      protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+         int width = getCardWidth();
+         int height = MeasureSpec.getSize(heightMeasureSpec);
+         int childWidthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+         int childHeightSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+         for (int i = 0; i < getChildCount(); i++) {
+            getChildAt(i).measure(childWidthSpec, childHeightSpec);
+         }
+         int count = adapter != null ? Math.min(adapter.getCount() - windowStart, getWindowCapacity()) : 0;
+         setMeasuredDimension(width * Math.max(0, count), height);
+      }
+
+      @Override
+      protected void onLayout(boolean changed, int l, int t, int r, int b) {
+         int width = getCardWidth();
+         for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int left = (((CardLayoutParams) child.getLayoutParams()).position - windowStart) * width;
+            child.layout(left, 0, left + child.getMeasuredWidth(), child.getMeasuredHeight());
+         }
+      }
+
+      @Override
+      protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+         return p instanceof CardLayoutParams;
+      }
+
+      /**
+       * Replays the kept display list of a card that is not the selected one. The selected card, and
+       * cards that are moved, faded or animated, are drawn as usual.
+       */
+      @Override
+      protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+         if (displayLists != null && displayListCachingEnabled && canvas.isHardwareAccelerated()
+               && canCacheDisplayList(child) && displayLists.draw(canvas, child)) {
+            return false;
+         }
+         return super.drawChild(canvas, child, drawingTime);
+      }
+
+      private boolean canCacheDisplayList(View child) {
+         return !cardAnimationRunning && child.getVisibility() == View.VISIBLE
+               && ((CardLayoutParams) child.getLayoutParams()).position != currentIndex
+               && child.getAnimation() == null && child.getAlpha() == 1 && child.getMatrix().isIdentity()
+               && child.getWidth() > 0 && child.getHeight() > 0;
+      }
+
+      /**
+       * Marks the display list of the card that holds {@code target} to be recorded again. The
+       * framework only calls this from API 26 on, and display lists are only kept from API 29 on.
+       */
+      @Override
+      public void onDescendantInvalidated(View child, View target) {
+         if (displayLists != null) {
+            displayLists.invalidate(child);
+         }
+         super.onDescendantInvalidated(child, target);
+      }
+
+      @Override
+      public void onViewRemoved(View child) {
+         super.onViewRemoved(child);
+         if (displayLists != null) {
+            displayLists.discard(child);
+         }
+      }
+   }
+
+   /** Remembers the adapter position, view type and item ID of an attached card. */
+   private static class CardLayoutParams extends ViewGroup.LayoutParams {
+      int position;
+      int viewType;
+      long itemId;
+
+      CardLayoutParams(int position, int viewType, long itemId) {
+         super(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+         this.position = position;
+         this.viewType = viewType;
+         this.itemId = itemId;
+      }
+   }
+
+   /** Stages of the input pipeline, in the order a motion event passes through them. */
+   public static enum InputStage {
+      /** The card scroller itself, including the cards it shows. */
+      SCROLLER,
+      /** The detectors added with {@link CardScrollView#addGestureDetector(GestureDetector)}. */
+      GESTURE_DETECTORS,
+      /**
+       * {@link Activity#onGenericMotionEvent(MotionEvent)} of the hosting activity, for touch
+       * events; the framework delivers unhandled generic motion events to it.
+       */
+      ACTIVITY
+   }
+
    /** Defines animation type used to navigate to, insert, or delete a card. */
    public static enum Animation {
       DELETION,
@@ -0,0 +1,147 @@
+package com.google.android.glass.widget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable description of the content of a card, taken from a {@link CardBuilder} with
+ * {@link CardBuilder#getSpec()}: its layout, texts, images, flags and embedded layout. Two specs
+ * are equal when the cards they describe look the same, and their hash code is computed once.
+ * <p>
+ * Texts are copied when the spec is taken, so that later changes to a mutable text do not change
+ * the spec. Images are described by where they come from: resources, files and Uris compare by
+ * value, bitmaps and drawables by identity. A spec holds no {@link android.content.Context}, and
+ * can be taken and compared on any thread.
+ * <p>
+ * Texts with spans compare by their spans as well from API 28; below it a copied styled text only
+ * equals itself, so specs of cards with styled texts are not equal unless they are the same spec.
+ */
+public final class CardSpec {
+   private final CardBuilder.Layout layout;
+   private final CharSequence heading;
+   private final CharSequence subheading;
+   private final CharSequence text;
+   private final CharSequence footnote;
+   private final CharSequence timestamp;
+   /** Where each image comes from, see {@link CardImage#getKey()}. */
+   private final List<Object> images;
+   private final Object icon;
+   private final Object attributionIcon;
+   private final boolean showStackIndicator;
+   private final int embeddedLayoutId;
+   private final boolean compositeImages;
+   /** Whether the card is drawn in a single view, or {@code null} to follow the default. */
+   private final Boolean canvasRendering;
+   private final int hashCode;
+
+   CardSpec(CardBuilder.Layout layout, CharSequence heading, CharSequence subheading, CharSequence text,
+         CharSequence footnote, CharSequence timestamp, List<CardImage> images, CardImage icon,
+         CardImage attributionIcon, boolean showStackIndicator, int embeddedLayoutId, boolean compositeImages,
+         Boolean canvasRendering) {
+      this.layout = layout;
+      this.heading = snapshot(heading);
+      this.subheading = snapshot(subheading);
+      this.text = snapshot(text);
+      this.footnote = snapshot(footnote);
+      this.timestamp = snapshot(timestamp);
+      ArrayList<Object> imageKeys = new ArrayList<>(images.size());
+      for (CardImage image : images) {
+         imageKeys.add(image.getKey());
+      }
+      this.images = Collections.unmodifiableList(imageKeys);
+      this.icon = icon != null ? icon.getKey() : null;
+      this.attributionIcon = attributionIcon != null ? attributionIcon.getKey() : null;
+      this.showStackIndicator = showStackIndicator;
+      this.embeddedLayoutId = embeddedLayoutId;
+      this.compositeImages = compositeImages;
+      this.canvasRendering = canvasRendering;
+
+      int result = layout.ordinal();
+      result = 31 * result + hash(this.heading);
+      result = 31 * result + hash(this.subheading);
+      result = 31 * result + hash(this.text);
+      result = 31 * result + hash(this.footnote);
+      result = 31 * result + hash(this.timestamp);
+      result = 31 * result + this.images.hashCode();
+      result = 31 * result + hash(this.icon);
+      result = 31 * result + hash(this.attributionIcon);
+      result = 31 * result + (showStackIndicator ? 1 : 0);
+      result = 31 * result + embeddedLayoutId;
+      result = 31 * result + (compositeImages ? 1 : 0);
+      this.hashCode = 31 * result + hash(canvasRendering);
+   }
+
+   public CardBuilder.Layout getLayout() {
+      return layout;
+   }
+
+   public CharSequence getHeading() {
+      return heading;
+   }
+
+   public CharSequence getSubheading() {
+      return subheading;
+   }
+
+   public CharSequence getText() {
+      return text;
+   }
+
+   public CharSequence getFootnote() {
+      return footnote;
+   }
+
+   public CharSequence getTimestamp() {
+      return timestamp;
+   }
+
+   /** @return the number of images added to the card, not counting its icons */
+   public int getImageCount() {
+      return images.size();
+   }
+
+   public boolean isStackIndicatorShown() {
+      return showStackIndicator;
+   }
+
+   /** @return the resource ID of the embedded layout, or 0 if there is none */
+   public int getEmbeddedLayoutId() {
+      return embeddedLayoutId;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof CardSpec)) {
+         return false;
+      }
+      CardSpec other = (CardSpec) o;
+      return hashCode == other.hashCode && layout == other.layout
+            && showStackIndicator == other.showStackIndicator && embeddedLayoutId == other.embeddedLayoutId
+            && compositeImages == other.compositeImages && equal(canvasRendering, other.canvasRendering)
+            && equal(heading, other.heading) && equal(subheading, other.subheading) && equal(text, other.text)
+            && equal(footnote, other.footnote) && equal(timestamp, other.timestamp)
+            && images.equals(other.images) && equal(icon, other.icon) && equal(attributionIcon, other.attributionIcon);
+   }
+
+   @Override
+   public int hashCode() {
+      return hashCode;
+   }
+
+   /** @return a copy of the text that the caller cannot change, or {@code null} if there is none */
+   private static CharSequence snapshot(CharSequence text) {
+      return text != null ? CardTextPreparer.snapshot(text) : null;
+   }
+
+   private static boolean equal(Object a, Object b) {
+      return a == null ? b == null : a.equals(b);
+   }
+
+   private static int hash(Object o) {
+      return o != null ? o.hashCode() : 0;
+   }
+}
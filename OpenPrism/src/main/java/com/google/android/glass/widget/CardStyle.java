@@ -0,0 +1,58 @@
+package com.google.android.glass.widget;
+
+/**
+ * Dimensions, fonts and colors of the card layouts, shared by the views {@link CardViewFactory}
+ * builds, the cards {@link CardCanvasView} draws and the sizes {@link CardImageSlots} and
+ * {@link CardTextSizer} work out, so that they all lay out a card alike. Dimensions are in dp and
+ * text sizes in sp; {@code CardCanvasViewTest} compares the two ways of showing a card.
+ */
+final class CardStyle {
+   /** Margins of the content of a card. */
+   static final int MARGIN_LEFT = 27;
+   static final int MARGIN_TOP = 27;
+   static final int MARGIN_RIGHT = 27;
+   static final int MARGIN_BOTTOM = 53;
+   /** Space between the bottom of the footer and the bottom of the card. */
+   static final int FOOTER_MARGIN_BOTTOM = 22;
+   /** Space between the footnote and the timestamp. */
+   static final int TIMESTAMP_MARGIN = 25;
+   static final int ATTRIBUTION_ICON_SIZE = 24;
+   /** Height of the gradient along the bottom of the images, behind the footer. */
+   static final int OVERLAY_HEIGHT = 96;
+   static final int STACK_INDICATOR_SIZE = 27;
+
+   /** Padding around the centered content of {@link CardBuilder.Layout#ALERT} and {@link CardBuilder.Layout#MENU}. */
+   static final int CENTERED_PADDING = 32;
+   static final int ALERT_ICON_SIZE = 96;
+   /** Padding of the icon of {@link CardBuilder.Layout#ALERT} within its size. */
+   static final int ALERT_ICON_PADDING = 16;
+   static final int ALERT_FOOTNOTE_HEIGHT = 20;
+   /** Size of the icon of {@link CardBuilder.Layout#AUTHOR} and {@link CardBuilder.Layout#CAPTION}. */
+   static final int AVATAR_SIZE = 40;
+   /** Space between the avatar and the texts next to it. */
+   static final int AVATAR_MARGIN = 8;
+   /** Together the heading and subheading are as tall as the avatar, so the text clears both. */
+   static final int HEADING_MIN_HEIGHT = 20;
+   static final int COLUMNS_ICON_SIZE = 128;
+   /** Size of the icon of {@link CardBuilder.Layout#MENU} and {@link CardBuilder.Layout#TITLE}. */
+   static final int TITLE_ICON_SIZE = 64;
+   /** Weights of the image and text columns of the column layouts, which split the card between them. */
+   static final int IMAGE_COLUMN_WEIGHT = 40;
+   static final int TEXT_COLUMN_WEIGHT = 24;
+
+   /** Font of the main text of the layouts that fit it to the card. */
+   static final String TEXT_FONT = "sans-serif-light";
+   /** Font of the single line of text of {@link CardBuilder.Layout#ALERT}, {@link CardBuilder.Layout#MENU} and {@link CardBuilder.Layout#TITLE}. */
+   static final String TITLE_FONT = "sans-serif-thin";
+   static final String FOOTNOTE_FONT = "sans-serif";
+   static final int ALERT_TEXT_SIZE = 32;
+   static final int TITLE_TEXT_SIZE = 48;
+
+   /** Dims the images of the layouts with text over them. */
+   static final int DIM_COLOR = 0x4C000000;
+   /** Fills the image column of the column layouts behind their icon. */
+   static final int ICON_BACKGROUND_COLOR = 0xFF222222;
+
+   private CardStyle() {
+   }
+}
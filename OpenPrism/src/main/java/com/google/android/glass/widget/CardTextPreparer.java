@@ -0,0 +1,281 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import com.google.android.glass.R;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepares the main text of the {@link CardBuilder.Layout}s whose text is sized by
+ * {@link CardTextSizer} off the main thread: its fitted size is measured, and the text is shaped
+ * and measured into a {@link PrecomputedTextCompat} for the text style of the card at that size,
+ * so that binding the card only attaches the measured text, and laying it out only breaks it into
+ * lines. Below API 28, where there is no {@link android.text.PrecomputedText}, preparing a text
+ * warms up the text layout cache of the platform instead.
+ * <p>
+ * Prepared texts are cached by text and text style, which includes the fitted size, and so the
+ * area the card leaves its text. Texts are prepared ahead of time by
+ * {@link CardBuilder#prepareText()}, or when a card whose text is not prepared yet is bound: the
+ * card then shows it as plain text until it is prepared. A card bound for the screen measures the
+ * size of its text on the spot if it is not cached, so that it is never shown at another size; only
+ * cards bound off screen, while {@link #setDeferSizing(boolean)} is set, show their text at the
+ * smallest size until it is measured in the background.
+ */
+final class CardTextPreparer {
+   private static final int MAX_PREPARED_TEXTS = 64;
+
+   private static final Object lock = new Object();
+   private static final LinkedHashMap<Key, PrecomputedTextCompat> preparedTexts = new LinkedHashMap<Key, PrecomputedTextCompat>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, PrecomputedTextCompat> eldest) {
+         return size() > MAX_PREPARED_TEXTS;
+      }
+   };
+   /** Text style of the card text views built for a context, apart from the size; main thread only. */
+   private static final WeakHashMap<Context, PrecomputedTextCompat.Params> baseParams = new WeakHashMap<>();
+   private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+   private static Executor executor;
+   /** Whether the cards bound now are off screen and can wait for the size of their text; main thread only. */
+   private static boolean deferSizing = false;
+
+   private CardTextPreparer() {
+   }
+
+   private static synchronized Executor getExecutor() {
+      if (executor == null) {
+         executor = Executors.newSingleThreadExecutor();
+      }
+      return executor;
+   }
+
+   /**
+    * Sets whether the cards bound from now on are off screen, such as the cards a
+    * {@link CardScrollView} binds ahead of time, so that their text can be sized in the background.
+    * Must be called on the main thread, and reset once the cards are bound.
+    */
+   static void setDeferSizing(boolean defer) {
+      deferSizing = defer;
+   }
+
+   /** @return whether the cards bound now can wait for the size of their text, see {@link #setDeferSizing(boolean)} */
+   static boolean isSizingDeferred() {
+      return deferSizing;
+   }
+
+   /** @return whether the main text of the layout is prepared: layouts that fit it, and their fixed variants */
+   static boolean isSupported(CardBuilder.Layout layout) {
+      switch (layout) {
+         case AUTHOR:
+         case CAPTION:
+         case COLUMNS:
+         case COLUMNS_FIXED:
+         case TEXT:
+         case TEXT_FIXED:
+            return true;
+         default:
+            return false;
+      }
+   }
+
+   /**
+    * Same as {@link #prepare(Context, CharSequence, CardBuilder.Layout, int, int, Runnable)}, for a
+    * card the size of the display.
+    */
+   static void prepare(Context context, CharSequence text, CardBuilder.Layout layout, Runnable onPrepared) {
+      DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      prepare(context, text, layout, metrics.widthPixels, metrics.heightPixels, onPrepared);
+   }
+
+   /**
+    * Starts preparing the text of a card of the given size on a background thread, for the card
+    * views built for the given context. Must be called on the main thread.
+    * @param onPrepared run on the main thread once the text is prepared, and its fitted size cached;
+    *                   can be {@code null}
+    */
+   static void prepare(Context context, CharSequence text, final CardBuilder.Layout layout, final int cardWidth,
+         final int cardHeight, final Runnable onPrepared) {
+      if (text == null || !isSupported(layout)) {
+         return;
+      }
+      PrecomputedTextCompat.Params params = baseParams.get(context);
+      if (params == null) {
+         params = TextViewCompat.getTextMetricsParams(CardViewFactory.createCardText(context));
+         baseParams.put(context, params);
+      }
+      final PrecomputedTextCompat.Params base = params;
+      final CharSequence snapshot = snapshot(text);
+      final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      getExecutor().execute(new Runnable() {
+         @Override
+         public void run() {
+            prepare(snapshot, base, layout, cardWidth, cardHeight, metrics);
+            if (onPrepared != null) {
+               mainHandler.post(onPrepared);
+            }
+         }
+      });
+   }
+
+   /**
+    * Shows the text of a card in its text view at its fitted size: attaches the prepared text if
+    * there is one, and shows the text as it is while preparing it on a background thread
+    * otherwise. The size is measured on the spot if it is not cached, unless
+    * {@link #setDeferSizing(boolean) sizing is deferred}. Hides the view if there is no text. Must be
+    * called on the main thread, for a {@link #isSupported(CardBuilder.Layout) supported} layout.
+    * @param card the root view of the card, whose size the text is fitted to once it is laid out
+    */
+   static void bindText(View card, final TextView view, CharSequence text, final CardBuilder.Layout layout) {
+      view.setTag(R.id.card_text_request, null);
+      int visibility = text != null ? View.VISIBLE : View.GONE;
+      if (view.getVisibility() != visibility) {
+         view.setVisibility(visibility);
+      }
+      if (text == null) {
+         return;
+      }
+      final DisplayMetrics metrics = view.getResources().getDisplayMetrics();
+      final PrecomputedTextCompat.Params base = TextViewCompat.getTextMetricsParams(view);
+      final CharSequence snapshot = snapshot(text);
+      Point cardSize = new Point();
+      CardTextSizer.getCardSize(card, metrics, cardSize);
+      final int cardWidth = cardSize.x;
+      final int cardHeight = cardSize.y;
+      int textSizeSp = deferSizing ? CardTextSizer.getCachedTextSize(snapshot, layout, cardWidth, cardHeight, metrics)
+            : CardTextSizer.getTextSize(snapshot, layout, cardWidth, cardHeight, metrics);
+      if (textSizeSp > 0) {
+         PrecomputedTextCompat.Params params = withTextSize(base, textSizeSp, metrics);
+         PrecomputedTextCompat prepared;
+         synchronized (lock) {
+            prepared = preparedTexts.get(new Key(snapshot, params));
+         }
+         if (prepared != null) {
+            setTextSize(view, params.getTextPaint().getTextSize());
+            attach(view, prepared, snapshot);
+            return;
+         }
+      }
+      int shownSizeSp = textSizeSp > 0 ? textSizeSp : CardTextSizer.MIN_TEXT_SIZE_SP;
+      setTextSize(view, TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, shownSizeSp, metrics));
+      view.setText(snapshot);
+      final Object request = new Object();
+      view.setTag(R.id.card_text_request, request);
+      getExecutor().execute(new Runnable() {
+         @Override
+         public void run() {
+            final PrecomputedTextCompat prepared = prepare(snapshot, base, layout, cardWidth, cardHeight, metrics);
+            mainHandler.post(new Runnable() {
+               @Override
+               public void run() {
+                  // Unless the view was bound to another text in the meantime
+                  if (view.getTag(R.id.card_text_request) == request) {
+                     view.setTag(R.id.card_text_request, null);
+                     setTextSize(view, prepared.getParams().getTextPaint().getTextSize());
+                     attach(view, prepared, snapshot);
+                  }
+               }
+            });
+         }
+      });
+   }
+
+   /** Drops all prepared texts. */
+   static void clear() {
+      synchronized (lock) {
+         preparedTexts.clear();
+      }
+   }
+
+   /** Fits the size of a text and prepares it at that size; runs on the background thread. */
+   private static PrecomputedTextCompat prepare(CharSequence text, PrecomputedTextCompat.Params base,
+         CardBuilder.Layout layout, int cardWidth, int cardHeight, DisplayMetrics metrics) {
+      int textSizeSp = CardTextSizer.getTextSize(text, layout, cardWidth, cardHeight, metrics);
+      Key key = new Key(text, withTextSize(base, textSizeSp, metrics));
+      synchronized (lock) {
+         PrecomputedTextCompat prepared = preparedTexts.get(key);
+         if (prepared != null) {
+            return prepared;
+         }
+      }
+      PrecomputedTextCompat prepared = PrecomputedTextCompat.create(text, key.params);
+      synchronized (lock) {
+         preparedTexts.put(key, prepared);
+      }
+      return prepared;
+   }
+
+   private static PrecomputedTextCompat.Params withTextSize(PrecomputedTextCompat.Params base, int textSizeSp,
+         DisplayMetrics metrics) {
+      TextPaint paint = new TextPaint(base.getTextPaint());
+      paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, textSizeSp, metrics));
+      PrecomputedTextCompat.Params.Builder builder = new PrecomputedTextCompat.Params.Builder(paint);
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+         builder.setBreakStrategy(base.getBreakStrategy());
+         builder.setHyphenationFrequency(base.getHyphenationFrequency());
+      }
+      builder.setTextDirection(base.getTextDirection());
+      return builder.build();
+   }
+
+   private static void attach(TextView view, PrecomputedTextCompat prepared, CharSequence text) {
+      try {
+         TextViewCompat.setPrecomputedText(view, prepared);
+      } catch (IllegalArgumentException e) {
+         // The text view does not have the style the text was prepared for
+         view.setText(text);
+      }
+   }
+
+   private static void setTextSize(TextView view, float textSize) {
+      if (view.getTextSize() != textSize) {
+         view.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+      }
+   }
+
+   /** @return a copy of the text that the caller cannot change while it is prepared */
+   static CharSequence snapshot(CharSequence text) {
+      return text instanceof Spanned ? new SpannedString(text) : text.toString();
+   }
+
+   private static final class Key {
+      final CharSequence text;
+      final PrecomputedTextCompat.Params params;
+
+      Key(CharSequence text, PrecomputedTextCompat.Params params) {
+         this.text = text;
+         this.params = params;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return text.equals(other.text) && params.equals(other.params);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * text.hashCode() + params.hashCode();
+      }
+   }
+}
@@ -0,0 +1,205 @@
+package com.google.android.glass.widget;
+
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.View;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sizes the main text of the {@link CardBuilder.Layout}s whose text scales to fit the card: the
+ * largest size, from the layout's maximum down to {@link #MIN_TEXT_SIZE_SP} in steps of 2sp, at
+ * which the text fits in the area the layout leaves it.
+ * <p>
+ * Fitted sizes are measured once with a {@link StaticLayout} and cached by text, layout and text
+ * area, and the text view is given a fixed size, so that binding a card again or laying it out
+ * does not measure the text again. A card bound for the screen measures its text on the spot on a
+ * miss; {@link CardTextPreparer} measures the texts of cards bound off screen off the main thread.
+ */
+final class CardTextSizer {
+   /** Smallest size of the fitted text, and the size of the text of the fixed layouts. */
+   static final int MIN_TEXT_SIZE_SP = 18;
+   private static final int STEP_SP = 2;
+   private static final int MAX_CACHED_SIZES = 256;
+
+   private static final Object lock = new Object();
+   private static final LinkedHashMap<Key, Integer> sizes = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+         return size() > MAX_CACHED_SIZES;
+      }
+   };
+
+   private CardTextSizer() {
+   }
+
+   /** @return the largest size of the text of the layout, or 0 if its text has a fixed size */
+   static int getMaxTextSize(CardBuilder.Layout layout) {
+      switch (layout) {
+         case AUTHOR:
+         case COLUMNS:
+         case TEXT:
+            return 64;
+         case CAPTION:
+            return 28;
+         default:
+            return 0;
+      }
+   }
+
+   /**
+    * Sets {@code outSize} to the size of a card view once it is laid out, or to the size of the
+    * display until then, which is the size a {@link CardScrollView} gives its cards full screen.
+    */
+   static void getCardSize(View card, DisplayMetrics metrics, Point outSize) {
+      if (card.getWidth() > 0 && card.getHeight() > 0) {
+         outSize.set(card.getWidth(), card.getHeight());
+      } else {
+         outSize.set(metrics.widthPixels, metrics.heightPixels);
+      }
+   }
+
+   /** Sets {@code outArea} to the width and height the layout leaves its text in a card of the given size, in pixels. */
+   static void getTextArea(CardBuilder.Layout layout, int cardWidth, int cardHeight, DisplayMetrics metrics, Point outArea) {
+      // Within the margins of the card
+      int width = cardWidth - CardImageSlots.dp(metrics, CardStyle.MARGIN_LEFT + CardStyle.MARGIN_RIGHT);
+      int height = cardHeight - CardImageSlots.dp(metrics, CardStyle.MARGIN_TOP + CardStyle.MARGIN_BOTTOM);
+      switch (layout) {
+         case AUTHOR:
+            // Below the heading and subheading, as tall as the avatar
+            height -= CardImageSlots.dp(metrics, CardStyle.AVATAR_SIZE);
+            break;
+         case CAPTION:
+            // Next to the avatar
+            width -= CardImageSlots.dp(metrics, CardStyle.AVATAR_SIZE + CardStyle.AVATAR_MARGIN);
+            break;
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            width = cardWidth - CardImageSlots.getMosaicWidth(layout, cardWidth)
+                  - CardImageSlots.dp(metrics, CardStyle.MARGIN_LEFT + CardStyle.MARGIN_RIGHT);
+            break;
+         default:
+            break;
+      }
+      outArea.set(Math.max(0, width), Math.max(0, height));
+   }
+
+   /**
+    * @return the fitted size of a text in a card of the given size in sp if it is cached or its
+    *         layout has a fixed size, or 0 if it still has to be measured
+    */
+   static int getCachedTextSize(CharSequence text, CardBuilder.Layout layout, int cardWidth, int cardHeight,
+         DisplayMetrics metrics) {
+      if (getMaxTextSize(layout) == 0 || text == null) {
+         return MIN_TEXT_SIZE_SP;
+      }
+      Key key = new Key(text, layout, cardWidth, cardHeight, metrics);
+      synchronized (lock) {
+         Integer size = sizes.get(key);
+         return size != null ? size : 0;
+      }
+   }
+
+   /** Same as {@link #getTextSize(CharSequence, CardBuilder.Layout, int, int, DisplayMetrics)}, for a card the size of the display. */
+   static int getTextSize(CharSequence text, CardBuilder.Layout layout, DisplayMetrics metrics) {
+      return getTextSize(text, layout, metrics.widthPixels, metrics.heightPixels, metrics);
+   }
+
+   /**
+    * Returns the fitted size of a text in a card of the given size, measuring it on the calling
+    * thread if it is not cached.
+    * @return the size in sp, {@link #MIN_TEXT_SIZE_SP} for layouts whose text has a fixed size
+    */
+   static int getTextSize(CharSequence text, CardBuilder.Layout layout, int cardWidth, int cardHeight,
+         DisplayMetrics metrics) {
+      int maxTextSize = getMaxTextSize(layout);
+      if (maxTextSize == 0 || text == null) {
+         return MIN_TEXT_SIZE_SP;
+      }
+      Key key = new Key(text, layout, cardWidth, cardHeight, metrics);
+      synchronized (lock) {
+         Integer size = sizes.get(key);
+         if (size != null) {
+            return size;
+         }
+      }
+      int size = measure(text, maxTextSize, key.width, key.height, metrics);
+      synchronized (lock) {
+         sizes.put(key, size);
+      }
+      return size;
+   }
+
+   private static int measure(CharSequence text, int maxTextSize, int width, int height, DisplayMetrics metrics) {
+      if (width <= 0) {
+         return MIN_TEXT_SIZE_SP;
+      }
+      TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+      paint.setTypeface(Typeface.create(CardStyle.TEXT_FONT, Typeface.NORMAL));
+      for (int size = maxTextSize; size > MIN_TEXT_SIZE_SP; size -= STEP_SP) {
+         paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, size, metrics));
+         if (createLayout(text, paint, width).getHeight() <= height) {
+            return size;
+         }
+      }
+      return MIN_TEXT_SIZE_SP;
+   }
+
+   @SuppressWarnings("deprecation")
+   private static StaticLayout createLayout(CharSequence text, TextPaint paint, int width) {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+         return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+               .setAlignment(android.text.Layout.Alignment.ALIGN_NORMAL)
+               .setLineSpacing(0, 1)
+               .setIncludePad(true)
+               .build();
+      }
+      return new StaticLayout(text, paint, width, android.text.Layout.Alignment.ALIGN_NORMAL, 1, 0, true);
+   }
+
+   private static final class Key {
+      /** The characters of the text; its spans do not change the size it fits at. */
+      final String text;
+      final CardBuilder.Layout layout;
+      final int width;
+      final int height;
+      final float scaledDensity;
+
+      Key(CharSequence text, CardBuilder.Layout layout, int cardWidth, int cardHeight, DisplayMetrics metrics) {
+         Point area = new Point();
+         getTextArea(layout, cardWidth, cardHeight, metrics, area);
+         this.text = text.toString();
+         this.layout = layout;
+         this.width = area.x;
+         this.height = area.y;
+         // The text size in pixels also depends on the font scale
+         this.scaledDensity = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 1, metrics);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return layout == other.layout && width == other.width && height == other.height
+               && scaledDensity == other.scaledDensity && text.equals(other.text);
+      }
+
+      @Override
+      public int hashCode() {
+         int result = text.hashCode();
+         result = 31 * result + layout.ordinal();
+         result = 31 * result + width;
+         result = 31 * result + height;
+         return 31 * result + Float.floatToIntBits(scaledDensity);
+      }
+   }
+}
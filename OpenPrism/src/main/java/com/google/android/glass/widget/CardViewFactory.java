@@ -0,0 +1,486 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+
+import androidx.core.widget.TextViewCompat;
+
+import com.google.android.glass.R;
+
+import de.hdodenhof.circleimageview.CircleImageView;
+
+/**
+ * Builds the view hierarchy of each {@link CardBuilder.Layout} directly in code, so that creating
+ * a card does not go through {@link android.view.LayoutInflater}, its XML parsing and its
+ * reflective view construction.
+ * <p>
+ * The views carry the same IDs as in the {@code card_builder_*} layouts, but the hierarchies are
+ * flatter: the text of {@link CardBuilder.Layout#TEXT} and the content of
+ * {@link CardBuilder.Layout#ALERT} sit directly in the card's root instead of reusing the author
+ * tree with its hidden heading and avatar, and the wrappers that only held the text are gone. The
+ * XML layouts are kept for reference and for {@code CardViewFactoryTest}, which compares the two.
+ */
+final class CardViewFactory {
+   private static final int MATCH = ViewGroup.LayoutParams.MATCH_PARENT;
+   private static final int WRAP = ViewGroup.LayoutParams.WRAP_CONTENT;
+
+   private final Context context;
+   private final float density;
+
+   private CardViewFactory(Context context) {
+      this.context = context;
+      this.density = context.getResources().getDisplayMetrics().density;
+   }
+
+   /** Builds the root view of a card with the given layout; it is not attached to {@code parent}. */
+   static View create(Context context, CardBuilder.Layout layout, ViewGroup parent) {
+      CardViewFactory factory = new CardViewFactory(context);
+      switch (layout) {
+         case ALERT:
+            return factory.createAlert();
+         case AUTHOR:
+            return factory.createAuthor();
+         case CAPTION:
+            return factory.createCaption();
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            return factory.createColumns();
+         case EMBED_INSIDE:
+            return factory.createEmbed();
+         case TEXT:
+         case TEXT_FIXED:
+            return factory.createText();
+         case TITLE:
+            return factory.createTitle();
+         case MENU:
+         default:
+            return factory.createMenu();
+      }
+   }
+
+   /** @return the XML layout that {@link CardBuilder} used to inflate for the given layout */
+   static int getLayoutResource(CardBuilder.Layout layout) {
+      switch (layout) {
+         case ALERT:
+         case AUTHOR:
+         case TEXT:
+         case TEXT_FIXED:
+            return R.layout.card_builder_author;
+         case CAPTION:
+            return R.layout.card_builder_caption;
+         case COLUMNS:
+         case COLUMNS_FIXED:
+            return R.layout.card_builder_columns;
+         case EMBED_INSIDE:
+            return R.layout.card_builder_embed;
+         case TITLE:
+            return R.layout.card_builder_title;
+         case MENU:
+         default:
+            return R.layout.card_builder_menu;
+      }
+   }
+
+   private View createAlert() {
+      FrameLayout root = createRoot();
+      addBackground(root, true);
+
+      LinearLayout content = new LinearLayout(context);
+      content.setOrientation(LinearLayout.VERTICAL);
+      content.setGravity(Gravity.CENTER);
+      int padding = dp(CardStyle.CENTERED_PADDING);
+      content.setPadding(padding, padding, padding, padding);
+      root.addView(content, frameParams(MATCH, MATCH, Gravity.CENTER));
+
+      ImageView icon = new ImageView(context);
+      icon.setId(R.id.card_icon);
+      int iconPadding = dp(CardStyle.ALERT_ICON_PADDING);
+      icon.setPadding(iconPadding, iconPadding, iconPadding, iconPadding);
+      LinearLayout.LayoutParams iconParams = new LinearLayout.LayoutParams(dp(CardStyle.ALERT_ICON_SIZE), dp(CardStyle.ALERT_ICON_SIZE));
+      iconParams.gravity = Gravity.CENTER;
+      content.addView(icon, iconParams);
+
+      TextView text = createTextView(R.id.card_text, CardStyle.TITLE_FONT, CardStyle.ALERT_TEXT_SIZE);
+      text.setGravity(Gravity.CENTER);
+      text.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
+      text.setMaxLines(1);
+      text.setTextColor(Color.WHITE);
+      content.addView(text, new LinearLayout.LayoutParams(WRAP, WRAP));
+
+      TextView footnote = new TextView(context);
+      footnote.setId(R.id.card_footnote);
+      TextViewCompat.setTextAppearance(footnote, androidx.appcompat.R.style.TextAppearance_AppCompat_Small);
+      footnote.setTypeface(Typeface.create(CardStyle.FOOTNOTE_FONT, Typeface.NORMAL));
+      footnote.setEllipsize(TextUtils.TruncateAt.END);
+      footnote.setGravity(Gravity.CENTER);
+      footnote.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
+      footnote.setMaxLines(1);
+      content.addView(footnote, new LinearLayout.LayoutParams(WRAP, dp(CardStyle.ALERT_FOOTNOTE_HEIGHT)));
+
+      ImageView attributionIcon = new ImageView(context);
+      attributionIcon.setId(R.id.card_attribution_icon);
+      int attributionSize = dp(CardStyle.ATTRIBUTION_ICON_SIZE);
+      FrameLayout.LayoutParams attributionParams = frameParams(attributionSize, attributionSize, Gravity.BOTTOM | Gravity.RIGHT);
+      attributionParams.setMargins(0, 0, dp(CardStyle.MARGIN_RIGHT), dp(CardStyle.FOOTER_MARGIN_BOTTOM));
+      root.addView(attributionIcon, attributionParams);
+      return root;
+   }
+
+   private View createAuthor() {
+      FrameLayout root = createRoot();
+      addBackground(root, true);
+
+      RelativeLayout content = createContentContainer(root);
+      CircleImageView icon = new CircleImageView(context);
+      icon.setId(R.id.card_icon);
+      RelativeLayout.LayoutParams iconParams = new RelativeLayout.LayoutParams(dp(CardStyle.AVATAR_SIZE), dp(CardStyle.AVATAR_SIZE));
+      iconParams.rightMargin = dp(CardStyle.AVATAR_MARGIN);
+      content.addView(icon, iconParams);
+
+      TextView heading = new TextView(context);
+      heading.setId(R.id.card_heading);
+      heading.setTextColor(Color.WHITE);
+      heading.setMinHeight(dp(CardStyle.HEADING_MIN_HEIGHT));
+      RelativeLayout.LayoutParams headingParams = new RelativeLayout.LayoutParams(MATCH, WRAP);
+      headingParams.addRule(RelativeLayout.RIGHT_OF, R.id.card_icon);
+      content.addView(heading, headingParams);
+
+      TextView subheading = new TextView(context);
+      subheading.setId(R.id.card_subheading);
+      subheading.setTextColor(context.getResources().getColor(android.R.color.darker_gray));
+      subheading.setMinHeight(dp(CardStyle.HEADING_MIN_HEIGHT));
+      RelativeLayout.LayoutParams subheadingParams = new RelativeLayout.LayoutParams(MATCH, WRAP);
+      subheadingParams.addRule(RelativeLayout.RIGHT_OF, R.id.card_icon);
+      subheadingParams.addRule(RelativeLayout.BELOW, R.id.card_heading);
+      content.addView(subheading, subheadingParams);
+
+      TextView text = createCardTextView();
+      RelativeLayout.LayoutParams textParams = new RelativeLayout.LayoutParams(MATCH, MATCH);
+      textParams.addRule(RelativeLayout.BELOW, R.id.card_subheading);
+      content.addView(text, textParams);
+
+      addFooter(root);
+      return root;
+   }
+
+   private View createCaption() {
+      FrameLayout root = createRoot();
+      addBackground(root, false);
+
+      LinearLayout content = new LinearLayout(context);
+      content.setId(R.id.card_embed_container);
+      content.setOrientation(LinearLayout.HORIZONTAL);
+      content.setGravity(Gravity.BOTTOM);
+      root.addView(content, contentParams());
+
+      CircleImageView icon = new CircleImageView(context);
+      icon.setId(R.id.card_icon);
+      LinearLayout.LayoutParams iconParams = new LinearLayout.LayoutParams(dp(CardStyle.AVATAR_SIZE), dp(CardStyle.AVATAR_SIZE));
+      iconParams.rightMargin = dp(CardStyle.AVATAR_MARGIN);
+      content.addView(icon, iconParams);
+
+      TextView text = createCardTextView();
+      setShadow(text);
+      content.addView(text, new LinearLayout.LayoutParams(0, WRAP, 1));
+
+      addFooter(root);
+      return root;
+   }
+
+   private View createColumns() {
+      FrameLayout root = createRoot();
+      addStackIndicator(root);
+
+      LinearLayout columns = new LinearLayout(context);
+      columns.setOrientation(LinearLayout.HORIZONTAL);
+      root.addView(columns, new FrameLayout.LayoutParams(MATCH, MATCH));
+
+      FrameLayout imageColumn = new FrameLayout(context);
+      // Split by weight alone, whatever the columns hold, as CardImageSlots sizes their images
+      columns.addView(imageColumn, new LinearLayout.LayoutParams(0, MATCH, CardStyle.IMAGE_COLUMN_WEIGHT));
+      View iconBackground = new View(context);
+      iconBackground.setId(R.id.icon_background);
+      iconBackground.setBackgroundColor(CardStyle.ICON_BACKGROUND_COLOR);
+      imageColumn.addView(iconBackground, new FrameLayout.LayoutParams(MATCH, MATCH));
+      ImageView icon = new ImageView(context);
+      icon.setId(R.id.card_icon);
+      imageColumn.addView(icon, frameParams(dp(CardStyle.COLUMNS_ICON_SIZE), dp(CardStyle.COLUMNS_ICON_SIZE), Gravity.CENTER));
+      addImages(imageColumn, LinearLayout.VERTICAL);
+      addImageOverlay(imageColumn);
+
+      FrameLayout textColumn = new FrameLayout(context);
+      columns.addView(textColumn, new LinearLayout.LayoutParams(0, MATCH, CardStyle.TEXT_COLUMN_WEIGHT));
+      TextView text = createCardTextView();
+      textColumn.addView(text, contentParams());
+      addFooter(textColumn);
+      return root;
+   }
+
+   private View createEmbed() {
+      FrameLayout root = createRoot();
+      addBackground(root, true);
+      createContentContainer(root);
+      addFooter(root);
+      return root;
+   }
+
+   private View createMenu() {
+      FrameLayout root = createRoot();
+      addBackground(root, true);
+
+      LinearLayout content = new LinearLayout(context);
+      content.setOrientation(LinearLayout.HORIZONTAL);
+      content.setGravity(Gravity.CENTER);
+      int padding = dp(CardStyle.CENTERED_PADDING);
+      content.setPadding(padding, padding, padding, padding);
+      root.addView(content, frameParams(MATCH, WRAP, Gravity.CENTER));
+
+      ImageView icon = new ImageView(context);
+      icon.setId(R.id.card_icon);
+      icon.setVisibility(View.GONE);
+      content.addView(icon, new LinearLayout.LayoutParams(dp(CardStyle.TITLE_ICON_SIZE), dp(CardStyle.TITLE_ICON_SIZE)));
+
+      TextView text = createTextView(R.id.card_text, CardStyle.TITLE_FONT, CardStyle.TITLE_TEXT_SIZE);
+      text.setGravity(Gravity.CENTER);
+      text.setMaxLines(1);
+      text.setVisibility(View.GONE);
+      content.addView(text, new LinearLayout.LayoutParams(WRAP, MATCH));
+
+      TextView footnote = createFootnote();
+      footnote.setTextAlignment(View.TEXT_ALIGNMENT_CENTER);
+      root.addView(footnote, footerParams());
+      return root;
+   }
+
+   private View createText() {
+      FrameLayout root = createRoot();
+      addBackground(root, true);
+      TextView text = createCardTextView();
+      root.addView(text, contentParams());
+      addFooter(root);
+      return root;
+   }
+
+   private View createTitle() {
+      FrameLayout root = createRoot();
+      addBackground(root, false);
+
+      LinearLayout content = new LinearLayout(context);
+      content.setId(R.id.card_embed_container);
+      content.setGravity(Gravity.CENTER);
+      FrameLayout.LayoutParams contentParams = frameParams(MATCH, MATCH, Gravity.BOTTOM | Gravity.CENTER);
+      contentParams.topMargin = dp(CardStyle.MARGIN_TOP);
+      contentParams.bottomMargin = dp(CardStyle.MARGIN_BOTTOM);
+      root.addView(content, contentParams);
+
+      ImageView icon = new ImageView(context);
+      icon.setId(R.id.card_icon);
+      icon.setVisibility(View.GONE);
+      LinearLayout.LayoutParams iconParams = new LinearLayout.LayoutParams(dp(CardStyle.TITLE_ICON_SIZE), dp(CardStyle.TITLE_ICON_SIZE));
+      iconParams.gravity = Gravity.BOTTOM;
+      content.addView(icon, iconParams);
+
+      TextView text = createTextView(R.id.card_text, CardStyle.TITLE_FONT, CardStyle.TITLE_TEXT_SIZE);
+      text.setGravity(Gravity.BOTTOM | Gravity.CENTER);
+      text.setMaxLines(1);
+      text.setTextColor(Color.WHITE);
+      setShadow(text);
+      content.addView(text, new LinearLayout.LayoutParams(WRAP, MATCH));
+
+      addFooter(root);
+      return root;
+   }
+
+   private FrameLayout createRoot() {
+      FrameLayout root = new FrameLayout(context);
+      root.setId(R.id.layout);
+      root.setLayoutParams(new ViewGroup.LayoutParams(MATCH, MATCH));
+      return root;
+   }
+
+   /** Adds the image mosaic, the gradient behind the footer, optionally the dim, and the stack indicator. */
+   private void addBackground(FrameLayout root, boolean dim) {
+      addImages(root, LinearLayout.HORIZONTAL);
+      addImageOverlay(root);
+      if (dim) {
+         View imageDim = new View(context);
+         imageDim.setId(R.id.image_dim);
+         imageDim.setBackgroundColor(CardStyle.DIM_COLOR);
+         root.addView(imageDim, new FrameLayout.LayoutParams(MATCH, MATCH));
+      }
+      addStackIndicator(root);
+   }
+
+   /**
+    * Adds up to five images: the first one takes half of the space along {@code orientation}, the
+    * others share the other half in two rows of two.
+    */
+   private void addImages(FrameLayout parent, int orientation) {
+      boolean horizontal = orientation == LinearLayout.HORIZONTAL;
+      LinearLayout mosaic = new LinearLayout(context);
+      mosaic.setOrientation(orientation);
+      parent.addView(mosaic, new FrameLayout.LayoutParams(MATCH, MATCH));
+
+      mosaic.addView(createImageView(R.id.card_image_1), horizontal ? weighted(0, MATCH) : weighted(MATCH, 0));
+      LinearLayout rightColumn = new LinearLayout(context);
+      rightColumn.setId(R.id.card_images_right_column);
+      rightColumn.setOrientation(LinearLayout.VERTICAL);
+      mosaic.addView(rightColumn, horizontal ? weighted(0, MATCH) : weighted(MATCH, 0));
+
+      LinearLayout topRow = new LinearLayout(context);
+      rightColumn.addView(topRow, weighted(MATCH, 0));
+      topRow.addView(createImageView(R.id.card_image_2), weighted(0, MATCH));
+      topRow.addView(createImageView(R.id.card_image_3), weighted(0, MATCH));
+
+      LinearLayout bottomRow = new LinearLayout(context);
+      bottomRow.setId(R.id.card_images_bottom_row);
+      rightColumn.addView(bottomRow, weighted(MATCH, 0));
+      bottomRow.addView(createImageView(R.id.card_image_4), weighted(0, MATCH));
+      bottomRow.addView(createImageView(R.id.card_image_5), weighted(0, MATCH));
+   }
+
+   private ImageView createImageView(int id) {
+      ImageView image = new ImageView(context);
+      image.setId(id);
+      image.setScaleType(ImageView.ScaleType.CENTER_CROP);
+      return image;
+   }
+
+   private void addImageOverlay(FrameLayout parent) {
+      ImageView overlay = new ImageView(context);
+      overlay.setId(R.id.card_image_overlay);
+      overlay.setImageResource(R.drawable.rect_gradient);
+      parent.addView(overlay, frameParams(MATCH, dp(CardStyle.OVERLAY_HEIGHT), Gravity.BOTTOM));
+   }
+
+   private void addStackIndicator(FrameLayout parent) {
+      ImageView stackIndicator = new ImageView(context);
+      stackIndicator.setId(R.id.card_stack_indicator);
+      stackIndicator.setImageResource(R.drawable.stack_indicator);
+      parent.addView(stackIndicator, frameParams(dp(CardStyle.STACK_INDICATOR_SIZE), dp(CardStyle.STACK_INDICATOR_SIZE), Gravity.RIGHT | Gravity.TOP));
+   }
+
+   /** Adds the container for embedded layouts and content, within the standard card margins. */
+   private RelativeLayout createContentContainer(FrameLayout root) {
+      RelativeLayout container = new RelativeLayout(context);
+      container.setId(R.id.card_embed_container);
+      root.addView(container, contentParams());
+      return container;
+   }
+
+   /** Adds the footnote, timestamp and attribution icon along the bottom of the card. */
+   private void addFooter(FrameLayout parent) {
+      LinearLayout footer = new LinearLayout(context);
+      footer.setId(R.id.footer_container);
+      footer.setOrientation(LinearLayout.HORIZONTAL);
+      parent.addView(footer, footerParams());
+
+      TextView footnote = createFootnote();
+      footnote.setTextAlignment(View.TEXT_ALIGNMENT_VIEW_START);
+      footnote.setTextColor(Color.WHITE);
+      footer.addView(footnote, weighted(0, WRAP));
+
+      TextView timestamp = new TextView(context);
+      timestamp.setId(R.id.card_timestamp);
+      setTextAppearanceSmall(timestamp);
+      timestamp.setEllipsize(TextUtils.TruncateAt.END);
+      timestamp.setSingleLine(true);
+      timestamp.setTextColor(Color.WHITE);
+      LinearLayout.LayoutParams timestampParams = new LinearLayout.LayoutParams(WRAP, WRAP);
+      timestampParams.leftMargin = dp(CardStyle.TIMESTAMP_MARGIN);
+      footer.addView(timestamp, timestampParams);
+
+      ImageView attributionIcon = new ImageView(context);
+      attributionIcon.setId(R.id.card_attribution_icon);
+      footer.addView(attributionIcon, new LinearLayout.LayoutParams(dp(CardStyle.ATTRIBUTION_ICON_SIZE), MATCH));
+   }
+
+   private TextView createFootnote() {
+      TextView footnote = new TextView(context);
+      footnote.setId(R.id.card_footnote);
+      setTextAppearanceSmall(footnote);
+      footnote.setTypeface(Typeface.create(CardStyle.FOOTNOTE_FONT, Typeface.NORMAL));
+      footnote.setEllipsize(TextUtils.TruncateAt.END);
+      footnote.setSingleLine(true);
+      return footnote;
+   }
+
+   private TextView createTextView(int id, String fontFamily, int textSizeSp) {
+      TextView text = new TextView(context);
+      text.setId(id);
+      text.setTypeface(Typeface.create(fontFamily, Typeface.NORMAL));
+      text.setTextSize(TypedValue.COMPLEX_UNIT_SP, textSizeSp);
+      text.setEllipsize(TextUtils.TruncateAt.END);
+      return text;
+   }
+
+   /**
+    * Creates the main text view of a card outside of any card, to prepare texts for its style.
+    * @see CardTextPreparer
+    */
+   static TextView createCardText(Context context) {
+      return new CardViewFactory(context).createCardTextView();
+   }
+
+   /**
+    * Creates the main text of a card, at 18sp; it gets the fitted size of its text, and the text
+    * prepared for it, from {@link CardTextPreparer} when it is bound.
+    */
+   private TextView createCardTextView() {
+      TextView text = new TextView(context);
+      text.setId(R.id.card_text);
+      text.setTypeface(Typeface.create(CardStyle.TEXT_FONT, Typeface.NORMAL));
+      text.setTextColor(Color.WHITE);
+      text.setTextSize(TypedValue.COMPLEX_UNIT_SP, CardTextSizer.MIN_TEXT_SIZE_SP);
+      text.setEllipsize(TextUtils.TruncateAt.END);
+      return text;
+   }
+
+   private void setShadow(TextView text) {
+      text.setShadowLayer(1, 0, 1, context.getResources().getColor(android.R.color.background_dark));
+   }
+
+   private void setTextAppearanceSmall(TextView text) {
+      TypedValue value = new TypedValue();
+      Resources.Theme theme = context.getTheme();
+      if (theme.resolveAttribute(android.R.attr.textAppearanceSmall, value, true)) {
+         TextViewCompat.setTextAppearance(text, value.resourceId);
+      }
+   }
+
+   private FrameLayout.LayoutParams contentParams() {
+      FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(MATCH, MATCH);
+      params.setMargins(dp(CardStyle.MARGIN_LEFT), dp(CardStyle.MARGIN_TOP), dp(CardStyle.MARGIN_RIGHT), dp(CardStyle.MARGIN_BOTTOM));
+      return params;
+   }
+
+   private FrameLayout.LayoutParams footerParams() {
+      FrameLayout.LayoutParams params = frameParams(MATCH, WRAP, Gravity.BOTTOM);
+      params.setMargins(dp(CardStyle.MARGIN_LEFT), 0, dp(CardStyle.MARGIN_RIGHT), dp(CardStyle.FOOTER_MARGIN_BOTTOM));
+      return params;
+   }
+
+   private static FrameLayout.LayoutParams frameParams(int width, int height, int gravity) {
+      return new FrameLayout.LayoutParams(width, height, gravity);
+   }
+
+   private static LinearLayout.LayoutParams weighted(int width, int height) {
+      return new LinearLayout.LayoutParams(width, height, 1);
+   }
+
+   private int dp(int value) {
+      return Math.round(value * density);
+   }
+}
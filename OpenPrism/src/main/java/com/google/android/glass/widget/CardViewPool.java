@@ -0,0 +1,112 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.google.android.glass.R;
+
+import java.util.ArrayList;
+
+/**
+ * Unbound card views of each {@link CardBuilder} view type, built ahead of time for one
+ * {@link CardScrollView}, so that {@link CardBuilder#getView(View, ViewGroup)} can skip building
+ * them while a card is bound.
+ * <p>
+ * Views are built on the main thread, in the time a frame has left once it is drawn, by the
+ * scroller's prefetcher. The pool is tagged on the parent the scroller binds its cards into, where
+ * {@link #from(ViewGroup)} finds it; each scroller clears its own pool.
+ */
+final class CardViewPool {
+   /** Upper bound on the views kept per view type, whatever is requested. */
+   private static final int MAX_VIEWS_PER_TYPE = 8;
+
+   private final SparseArray<ArrayList<View>> views = new SparseArray<>();
+   /** Template of each view type that has fewer views than requested. */
+   private final SparseArray<CardBuilder> prototypes = new SparseArray<>();
+   private final SparseIntArray targets = new SparseIntArray();
+   /** Running average of the build duration per view type. */
+   private final SparseLongArray buildTimeNanos = new SparseLongArray();
+
+   /** @return the pool of the scroller that binds cards into {@code parent}, or {@code null} if there is none */
+   static CardViewPool from(ViewGroup parent) {
+      Object tag = parent != null ? parent.getTag(R.id.card_view_pool) : null;
+      return tag instanceof CardViewPool ? (CardViewPool) tag : null;
+   }
+
+   /**
+    * Asks for the pool to hold {@code count} views of the view type of {@code prototype}, which only
+    * serves as a template: its context, layout and embedded layout. The views are built by
+    * {@link #build(long, long)}.
+    */
+   void request(CardBuilder prototype, int count) {
+      int viewType = prototype.getItemViewType();
+      int target = Math.min(count, MAX_VIEWS_PER_TYPE);
+      if (getPooledCount(viewType) < target) {
+         prototypes.put(viewType, prototype);
+         targets.put(viewType, target);
+      }
+   }
+
+   /**
+    * Builds the requested views one at a time while the estimated build time still fits before
+    * {@code deadlineNanos}.
+    * @param defaultEstimateNanos estimated build time of a view type that was not built yet
+    * @return whether every requested view was built
+    */
+   boolean build(long deadlineNanos, long defaultEstimateNanos) {
+      while (prototypes.size() > 0) {
+         int viewType = prototypes.keyAt(0);
+         CardBuilder prototype = prototypes.valueAt(0);
+         if (System.nanoTime() + buildTimeNanos.get(viewType, defaultEstimateNanos) > deadlineNanos) {
+            return false;
+         }
+         long start = System.nanoTime();
+         View view = prototype.createSkeleton();
+         long average = buildTimeNanos.get(viewType, 0);
+         long duration = System.nanoTime() - start;
+         buildTimeNanos.put(viewType, average == 0 ? duration : (3 * average + duration) / 4);
+
+         ArrayList<View> pooled = views.get(viewType);
+         if (pooled == null) {
+            pooled = new ArrayList<>(targets.get(viewType));
+            views.put(viewType, pooled);
+         }
+         pooled.add(view);
+         if (pooled.size() >= targets.get(viewType)) {
+            prototypes.removeAt(0);
+            targets.delete(viewType);
+         }
+      }
+      return true;
+   }
+
+   /** @return an unbound view of the given type built with the given context, or {@code null} if there is none */
+   View take(Context context, int viewType) {
+      ArrayList<View> pooled = views.get(viewType);
+      if (pooled == null) {
+         return null;
+      }
+      for (int i = pooled.size() - 1; i >= 0; i--) {
+         if (pooled.get(i).getContext() == context) {
+            return pooled.remove(i);
+         }
+      }
+      return null;
+   }
+
+   /** Drops the pooled views and the requests that were not built yet. */
+   void clear() {
+      views.clear();
+      prototypes.clear();
+      targets.clear();
+   }
+
+   private int getPooledCount(int viewType) {
+      ArrayList<View> pooled = views.get(viewType);
+      return pooled != null ? pooled.size() : 0;
+   }
+}
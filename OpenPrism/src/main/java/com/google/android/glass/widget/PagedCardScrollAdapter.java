@@ -0,0 +1,268 @@
+package com.google.android.glass.widget;
+
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link CardScrollAdapter} for data sets too large to be held in memory at once, such as a long
+ * timeline history.
+ * <p>
+ * Items are loaded in fixed-size pages by {@link #loadPage(int, int)}, which runs on a background
+ * executor. A position whose page has not arrived yet is shown as a lightweight placeholder card,
+ * which is replaced by the real card as soon as the page is loaded. The adapter follows the
+ * positions the {@link CardScrollView} binds: when they come within a quarter page of a page
+ * boundary the neighbouring page is loaded ahead of time, and pages further than
+ * {@link #setRetainedPageDistance(int)} pages away are dropped.
+ *
+ * @param <T> the type of the items
+ */
+public abstract class PagedCardScrollAdapter<T> extends CardScrollAdapter {
+   public static final int DEFAULT_PAGE_SIZE = 50;
+   private static final int DEFAULT_RETAINED_PAGE_DISTANCE = 2;
+
+   private static Executor defaultExecutor;
+
+   private final int pageSize;
+   private final Executor executor;
+   private final Handler mainHandler = new Handler(Looper.getMainLooper());
+   private final SparseArray<List<T>> pages = new SparseArray<>();
+   private final SparseBooleanArray pendingPages = new SparseBooleanArray();
+   private int count;
+   private int retainedPageDistance = DEFAULT_RETAINED_PAGE_DISTANCE;
+   /** Incremented whenever the loaded pages are invalidated, so that stale loads are ignored. */
+   private int generation = 0;
+
+   /** Creates an adapter for {@code count} items, loaded in pages of {@link #DEFAULT_PAGE_SIZE}. */
+   public PagedCardScrollAdapter(int count) {
+      this(count, DEFAULT_PAGE_SIZE, null);
+   }
+
+   /**
+    * Creates an adapter for {@code count} items, loaded in pages of {@code pageSize} items on the
+    * given executor, or on a shared background thread if it is {@code null}.
+    */
+   public PagedCardScrollAdapter(int count, int pageSize, Executor executor) {
+      if (pageSize <= 0) {
+         throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+      }
+      this.count = Math.max(0, count);
+      this.pageSize = pageSize;
+      this.executor = executor != null ? executor : getDefaultExecutor();
+   }
+
+   private static synchronized Executor getDefaultExecutor() {
+      if (defaultExecutor == null) {
+         defaultExecutor = Executors.newSingleThreadExecutor();
+      }
+      return defaultExecutor;
+   }
+
+   /**
+    * Loads the items from {@code start} to {@code start + count - 1}. Called on a background thread.
+    * @return the items, in order; a shorter list leaves the missing positions as placeholders
+    */
+   protected abstract List<T> loadPage(int start, int count);
+
+   /** Returns the card for a loaded item, as {@link #getView(int, View, ViewGroup)} would. */
+   protected abstract View getItemView(int position, T item, View convertView, ViewGroup parent);
+
+   /**
+    * Returns the card shown for a position whose page is not loaded yet. The default implementation
+    * returns an empty black view.
+    */
+   protected View getPlaceholderView(int position, View convertView, ViewGroup parent) {
+      if (convertView != null) {
+         return convertView;
+      }
+      View placeholder = new View(parent.getContext());
+      placeholder.setBackgroundColor(Color.BLACK);
+      return placeholder;
+   }
+
+   /**
+    * Returns the view type of a loaded item, between 0 and {@link #getItemViewTypeCount()} - 1. The
+    * default implementation returns 0.
+    */
+   protected int getItemViewType(int position, T item) {
+      return 0;
+   }
+
+   /** Returns the number of view types of loaded items. The default implementation returns 1. */
+   protected int getItemViewTypeCount() {
+      return 1;
+   }
+
+   /** Sets how many pages on either side of the current one are kept once loaded. */
+   public void setRetainedPageDistance(int distance) {
+      this.retainedPageDistance = Math.max(1, distance);
+   }
+
+   /**
+    * Changes the number of items, e.g. when items were added to or removed from the end of the data
+    * source. The cards shown for the items that remain are kept as they are.
+    */
+   public void setCount(int count) {
+      count = Math.max(0, count);
+      if (this.count == count) {
+         return;
+      }
+      int oldCount = this.count;
+      this.count = count;
+      if (count > oldCount) {
+         // A page that was loaded short is loaded again to pick up the new items
+         for (int i = pages.size() - 1; i >= 0; i--) {
+            if (pages.valueAt(i).size() < pageSize) {
+               pages.removeAt(i);
+            }
+         }
+         notifyItemRangeInserted(oldCount, count - oldCount);
+      } else {
+         int lastPage = count > 0 ? (count - 1) / pageSize : -1;
+         for (int i = pages.size() - 1; i >= 0 && pages.keyAt(i) >= lastPage; i--) {
+            if (pages.keyAt(i) == lastPage) {
+               // The last page keeps the items that remain, and is loaded again once the count grows
+               trimPage(i, count - lastPage * pageSize);
+            } else {
+               pages.removeAt(i);
+            }
+         }
+         notifyItemRangeRemoved(count, oldCount - count);
+      }
+   }
+
+   /** Drops all loaded pages, so that they are loaded again as they are shown. */
+   public void invalidatePages() {
+      generation++;
+      pages.clear();
+      pendingPages.clear();
+      notifyItemRangeChanged(0, count);
+   }
+
+   /** Cuts the page at {@code index} down to its first {@code size} items, if it holds more. */
+   private void trimPage(int index, int size) {
+      List<T> page = pages.valueAt(index);
+      if (page.size() > size) {
+         pages.setValueAt(index, new ArrayList<>(page.subList(0, size)));
+      }
+   }
+
+   @Override
+   public int getCount() {
+      return count;
+   }
+
+   /** @return the item at the given position, or {@code null} if its page is not loaded */
+   @Override
+   public T getItem(int position) {
+      List<T> page = pages.get(position / pageSize);
+      int index = position % pageSize;
+      return page != null && index < page.size() ? page.get(index) : null;
+   }
+
+   /** Finds the position of an item among the loaded pages. */
+   @Override
+   public int getPosition(Object item) {
+      for (int i = 0; i < pages.size(); i++) {
+         int index = pages.valueAt(i).indexOf(item);
+         if (index >= 0) {
+            return pages.keyAt(i) * pageSize + index;
+         }
+      }
+      return AdapterView.INVALID_POSITION;
+   }
+
+   @Override
+   public int getItemViewType(int position) {
+      T item = getItem(position);
+      return item != null ? getItemViewType(position, item) : getItemViewTypeCount();
+   }
+
+   /** One more than {@link #getItemViewTypeCount()}, placeholders being the last view type. */
+   @Override
+   public int getViewTypeCount() {
+      return getItemViewTypeCount() + 1;
+   }
+
+   @Override
+   public View getView(int position, View convertView, ViewGroup parent) {
+      onPositionBound(position);
+      T item = getItem(position);
+      if (item == null) {
+         return getPlaceholderView(position, convertView, parent);
+      }
+      return getItemView(position, item, convertView, parent);
+   }
+
+   /** Loads the page of a position and the one next to it when it is near a boundary, drops far pages. */
+   private void onPositionBound(int position) {
+      int page = position / pageSize;
+      int offset = position % pageSize;
+      int margin = Math.max(1, pageSize / 4);
+      requestPage(page);
+      if (offset < margin) {
+         requestPage(page - 1);
+      } else if (offset >= pageSize - margin) {
+         requestPage(page + 1);
+      }
+      for (int i = pages.size() - 1; i >= 0; i--) {
+         if (Math.abs(pages.keyAt(i) - page) > retainedPageDistance) {
+            pages.removeAt(i);
+         }
+      }
+   }
+
+   private void requestPage(final int page) {
+      final int start = page * pageSize;
+      if (page < 0 || start >= count || pages.get(page) != null || pendingPages.get(page)) {
+         return;
+      }
+      pendingPages.put(page, true);
+      final int size = Math.min(pageSize, count - start);
+      final int requestGeneration = generation;
+      executor.execute(new Runnable() {
+         @Override
+         public void run() {
+            List<T> items = null;
+            try {
+               items = loadPage(start, size);
+            } catch (RuntimeException e) {
+               Log.e("OpenPrism", "Failed to load page at " + start, e);
+            }
+            final List<T> loaded = items;
+            mainHandler.post(new Runnable() {
+               @Override
+               public void run() {
+                  onPageLoaded(page, loaded, requestGeneration);
+               }
+            });
+         }
+      });
+   }
+
+   private void onPageLoaded(int page, List<T> items, int requestGeneration) {
+      if (requestGeneration != generation) {
+         return;
+      }
+      pendingPages.delete(page);
+      int start = page * pageSize;
+      if (items != null && start < count) {
+         pages.put(page, items);
+         // The count may have shrunk while the page was loading
+         int size = Math.min(pageSize, count - start);
+         trimPage(pages.indexOfKey(page), size);
+         notifyItemRangeChanged(start, size);
+      }
+   }
+}
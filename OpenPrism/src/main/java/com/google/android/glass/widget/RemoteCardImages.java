@@ -0,0 +1,181 @@
+package com.google.android.glass.widget;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.RemoteViews;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Sets the images of a card on its {@link RemoteViews} while keeping the binder transaction that
+ * carries them small.
+ * <p>
+ * Resource images the receiving side can load itself are sent as resource IDs. Every other image
+ * is rasterized once, at no more than the size its views take on screen, and views that show the
+ * same image, or images with the same pixels, share one {@link Bitmap} instance, which
+ * {@code RemoteViews} writes to the parcel only once. When the bitmaps of a card would still exceed
+ * {@link #MAX_BITMAP_BYTES}, they are all scaled down further.
+ */
+final class RemoteCardImages {
+   /** Upper bound on the pixels of all the bitmaps of one card, well below the 1MB binder buffer. */
+   static final int MAX_BITMAP_BYTES = 384 * 1024;
+
+   private final Context context;
+   private final ArrayList<Slot> slots = new ArrayList<>();
+
+   RemoteCardImages(Context context) {
+      this.context = context;
+   }
+
+   /**
+    * Shows an image in a view of the remote layout; the view is hidden if {@code image} is
+    * {@code null}. {@code width} and {@code height} are the size of the view on screen, in pixels.
+    */
+   void add(int viewId, CardImage image, int width, int height) {
+      slots.add(new Slot(viewId, image, Math.max(1, width), Math.max(1, height)));
+   }
+
+   /** Sets the images added so far on {@code views}. */
+   void apply(RemoteViews views) {
+      Resources resources = context.getResources();
+      String packageName = context.getPackageName();
+      IdentityHashMap<CardImage, Source> sources = new IdentityHashMap<>();
+      ArrayList<Source> rasterized = new ArrayList<>();
+      for (Slot slot : slots) {
+         int resourceId = slot.image != null ? slot.image.getResourceId() : 0;
+         if (resourceId != 0 && isLoadableRemotely(resources, resourceId, packageName)) {
+            views.setImageViewResource(slot.viewId, resourceId);
+            views.setViewVisibility(slot.viewId, View.VISIBLE);
+            continue;
+         }
+         Source source = slot.image != null ? sources.get(slot.image) : null;
+         if (source == null) {
+            Drawable drawable = slot.image != null ? slot.image.getDrawable(context) : null;
+            if (drawable == null) {
+               views.setViewVisibility(slot.viewId, View.GONE);
+               continue;
+            }
+            source = new Source(drawable);
+            sources.put(slot.image, source);
+            rasterized.add(source);
+         }
+         source.include(slot.width, slot.height);
+         slot.source = source;
+      }
+
+      long bytes = 0;
+      for (Source source : rasterized) {
+         bytes += source.getByteCount();
+      }
+      float scale = bytes > MAX_BITMAP_BYTES ? (float) Math.sqrt(MAX_BITMAP_BYTES / (double) bytes) : 1;
+      ArrayList<Bitmap> sent = new ArrayList<>(rasterized.size());
+      for (Slot slot : slots) {
+         if (slot.source != null) {
+            views.setImageViewBitmap(slot.viewId, slot.source.getBitmap(scale, sent));
+            views.setViewVisibility(slot.viewId, View.VISIBLE);
+         }
+      }
+   }
+
+   /**
+    * @return whether the process inflating the remote views can load the resource, which it looks
+    *         up in the package of the views or in the framework
+    */
+   private static boolean isLoadableRemotely(Resources resources, int resourceId, String packageName) {
+      try {
+         String resourcePackage = resources.getResourcePackageName(resourceId);
+         return packageName.equals(resourcePackage) || "android".equals(resourcePackage);
+      } catch (Resources.NotFoundException e) {
+         return false;
+      }
+   }
+
+   private static final class Slot {
+      final int viewId;
+      final CardImage image;
+      final int width;
+      final int height;
+      Source source;
+
+      Slot(int viewId, CardImage image, int width, int height) {
+         this.viewId = viewId;
+         this.image = image;
+         this.width = width;
+         this.height = height;
+      }
+   }
+
+   /** An image rasterized once, at the largest size any of its views needs. */
+   private static final class Source {
+      final Drawable drawable;
+      final boolean opaque;
+      int width;
+      int height;
+      Bitmap bitmap;
+
+      Source(Drawable drawable) {
+         this.drawable = drawable;
+         this.opaque = drawable.getOpacity() == PixelFormat.OPAQUE;
+      }
+
+      /** Grows the size to cover a view of the given size, without going above the image's own size. */
+      void include(int viewWidth, int viewHeight) {
+         int intrinsicWidth = drawable.getIntrinsicWidth();
+         int intrinsicHeight = drawable.getIntrinsicHeight();
+         int coverWidth = viewWidth;
+         int coverHeight = viewHeight;
+         if (intrinsicWidth > 0 && intrinsicHeight > 0) {
+            float cover = Math.min(1, Math.max(viewWidth / (float) intrinsicWidth, viewHeight / (float) intrinsicHeight));
+            coverWidth = Math.max(1, Math.round(intrinsicWidth * cover));
+            coverHeight = Math.max(1, Math.round(intrinsicHeight * cover));
+         }
+         width = Math.max(width, coverWidth);
+         height = Math.max(height, coverHeight);
+      }
+
+      long getByteCount() {
+         return (long) width * height * (opaque ? 2 : 4);
+      }
+
+      /**
+       * Rasterizes the image at its size times {@code scale}, or reuses a bitmap of {@code sent}
+       * with the same pixels, in which case the new one is dropped.
+       */
+      Bitmap getBitmap(float scale, ArrayList<Bitmap> sent) {
+         if (bitmap != null) {
+            return bitmap;
+         }
+         int targetWidth = Math.max(1, Math.round(width * scale));
+         int targetHeight = Math.max(1, Math.round(height * scale));
+         Bitmap original = drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+         if (original != null && original.getWidth() == targetWidth && original.getHeight() == targetHeight) {
+            bitmap = original;
+         } else {
+            bitmap = Bitmap.createBitmap(targetWidth, targetHeight, opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+            Rect bounds = drawable.copyBounds();
+            drawable.setBounds(0, 0, targetWidth, targetHeight);
+            drawable.draw(new Canvas(bitmap));
+            drawable.setBounds(bounds);
+         }
+         for (Bitmap other : sent) {
+            if (other.sameAs(bitmap)) {
+               if (bitmap != original) {
+                  bitmap.recycle();
+               }
+               bitmap = other;
+               return bitmap;
+            }
+         }
+         sent.add(bitmap);
+         return bitmap;
+      }
+   }
+}
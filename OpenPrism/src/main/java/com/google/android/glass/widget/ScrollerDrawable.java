@@ -0,0 +1,140 @@
+package com.google.android.glass.widget;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+/**
+ * Draws the thumb of a {@link Slider.Scroller} along the bottom edge of its bounds, and fades it out
+ * after a short time without position changes.
+ * <p>
+ * Nothing is allocated while drawing or moving the thumb: position changes and the fade only
+ * invalidate the drawable's own bounds, and the hide timer is rescheduled once per delay instead
+ * of on every position change.
+ */
+final class ScrollerDrawable extends Drawable {
+   private static final int HIDE_DELAY_MS = 1500;
+   private static final int FADE_DURATION_MS = 300;
+   private static final float THUMB_HEIGHT_DP = 3;
+   private static final float MIN_THUMB_WIDTH_DP = 12;
+
+   private final Paint paint = new Paint();
+   private final int thumbHeight;
+   private final int minThumbWidth;
+   private int max;
+   private float position;
+   private int alpha = 255;
+   /** Uptime at which the thumb starts to fade out. */
+   private long hideTime = 0;
+   private boolean hideScheduled = false;
+
+   private final Runnable hideRunnable = new Runnable() {
+      @Override
+      public void run() {
+         long now = SystemClock.uptimeMillis();
+         if (now < hideTime) {
+            scheduleSelf(this, hideTime);
+            return;
+         }
+         hideScheduled = false;
+         invalidateSelf();
+      }
+   };
+
+   ScrollerDrawable(Resources resources) {
+      float density = resources.getDisplayMetrics().density;
+      thumbHeight = Math.round(THUMB_HEIGHT_DP * density);
+      minThumbWidth = Math.round(MIN_THUMB_WIDTH_DP * density);
+      paint.setColor(Color.WHITE);
+   }
+
+   /** @return the height the thumb needs at the bottom of the bounds */
+   int getThumbHeight() {
+      return thumbHeight;
+   }
+
+   int getMax() {
+      return max;
+   }
+
+   void setMax(int max) {
+      this.max = Math.max(0, max);
+      invalidateSelf();
+   }
+
+   float getPosition() {
+      return position;
+   }
+
+   /** Moves the thumb, and shows it if the position changed. */
+   void setPosition(float position) {
+      if (this.position != position) {
+         this.position = position;
+         show();
+      }
+   }
+
+   /** Shows the thumb and restarts the time after which it hides. */
+   void show() {
+      hideTime = SystemClock.uptimeMillis() + HIDE_DELAY_MS;
+      if (!hideScheduled) {
+         hideScheduled = true;
+         scheduleSelf(hideRunnable, hideTime);
+      }
+      invalidateSelf();
+   }
+
+   /** Hides the thumb right away. */
+   void hide() {
+      hideTime = 0;
+      if (hideScheduled) {
+         hideScheduled = false;
+         unscheduleSelf(hideRunnable);
+      }
+      invalidateSelf();
+   }
+
+   @Override
+   public void draw(Canvas canvas) {
+      long elapsed = SystemClock.uptimeMillis() - hideTime;
+      if (hideTime == 0 || elapsed >= FADE_DURATION_MS) {
+         return;
+      }
+      float fade = 1;
+      if (elapsed > 0) {
+         fade = 1 - elapsed / (float) FADE_DURATION_MS;
+         // Keeps the fade going, this only redraws the thumb's own bounds
+         invalidateSelf();
+      }
+      Rect bounds = getBounds();
+      int width = bounds.width();
+      float thumbWidth = Math.max(minThumbWidth, width / (float) (max + 1));
+      float fraction = max > 0 ? Math.max(0, Math.min(1, position / max)) : 0;
+      float left = bounds.left + (width - thumbWidth) * fraction;
+      paint.setAlpha(Math.round(alpha * fade));
+      canvas.drawRect(left, bounds.bottom - thumbHeight, left + thumbWidth, bounds.bottom, paint);
+   }
+
+   @Override
+   public void setAlpha(int alpha) {
+      this.alpha = alpha;
+      invalidateSelf();
+   }
+
+   @Override
+   public void setColorFilter(ColorFilter colorFilter) {
+      paint.setColorFilter(colorFilter);
+      invalidateSelf();
+   }
+
+   @Override
+   public int getOpacity() {
+      return PixelFormat.TRANSLUCENT;
+   }
+}
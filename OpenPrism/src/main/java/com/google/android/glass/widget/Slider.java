@@ -25,18 +25,17 @@ import android.widget.ProgressBar;
  * i.e. it cannot be inflated from a layout or added at a particular position in a view hierarchy.
  */
 public class Slider {
-   Slider() {
-      Log.e("OpenPrism", "Stub: Slider()");
-   }
-
    static final int GRACE_PERIOD_TIME_IN_MS = 2000;
    private GracePeriod mGracePeriod;
    private GracePeriod.Listener mGracePeriodListener;
    private Handler mHandler = new Handler(Looper.getMainLooper());
    private Runnable mGracePeriodEndRunnable;
    private ViewGroup sliderView = null;
+   private final View hostView;
+   private ScrollerDrawable scrollerDrawable;
 
    private Slider(View setView) {
+      this.hostView = setView;
       if (setView.getParent() instanceof ViewGroup) {
          this.sliderView = (ViewGroup) setView.getParent();
       }
@@ -50,7 +49,6 @@ public class Slider {
     * @param view whose focus controls whether show requests are honored, cannot be {@code null}
     */
    public static Slider from(View view) {
-      Log.e("OpenPrism", "Stub: from(View)");
       return new Slider(view);
    }
 
@@ -62,34 +60,53 @@ public class Slider {
     * @return                scroller slider
     */
    public Slider.Scroller startScroller(int maxPosition, float initialPosition) {
-      Log.e("OpenPrism", "Stub: startScroller(int, float)");
-        return new Slider.Scroller() {
-
-           @Override
-           public int getMax() {
-              return 0;
-           }
-
-           @Override
-           public float getPosition() {
-              return 0;
-           }
-
-           @Override
-           public void setPosition(float var1) {
+      if (scrollerDrawable == null) {
+         scrollerDrawable = new ScrollerDrawable(hostView.getResources());
+         hostView.getOverlay().add(scrollerDrawable);
+      }
+      final ScrollerDrawable drawable = scrollerDrawable;
+      drawable.setMax(maxPosition);
+      Slider.Scroller scroller = new Slider.Scroller() {
+         @Override
+         public int getMax() {
+            return drawable.getMax();
+         }
 
-           }
+         @Override
+         public float getPosition() {
+            return drawable.getPosition();
+         }
 
-           @Override
-           public void show() {
+         @Override
+         public void setPosition(float position) {
+            updateScrollerBounds();
+            drawable.setPosition(position);
+         }
 
-           }
+         @Override
+         public void show() {
+            updateScrollerBounds();
+            drawable.show();
+         }
 
-           @Override
-           public void hide() {
+         @Override
+         public void hide() {
+            drawable.hide();
+         }
+      };
+      scroller.setPosition(initialPosition);
+      scroller.show();
+      return scroller;
+   }
 
-           }
-        };
+   /**
+    * Keeps the scroller along the bottom edge of the visible part of the host view. The overlay is
+    * drawn in the host's content coordinates, so the bounds follow its scroll offset.
+    */
+   private void updateScrollerBounds() {
+      int left = hostView.getScrollX();
+      int bottom = hostView.getScrollY() + hostView.getHeight();
+      scrollerDrawable.setBounds(left, bottom - scrollerDrawable.getThumbHeight(), left + hostView.getWidth(), bottom);
    }
 
    /**